@@ -0,0 +1,217 @@
+package com.versioning;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.versioning.entity.Entity;
+import com.versioning.entity.EntityVersion;
+import com.versioning.map.DeclaredEntityVersionMapper;
+import com.versioning.map.EntityVersionMapper;
+import com.versioning.model.ExecuteOperationVersion;
+import com.versioning.model.ExecuteVersion;
+
+/**
+ * Entities, mappers and executers shared by the benchmarks.<br>
+ * Entity {@code customer} has versions 1 to {@value #LATEST}, with a mapper from each version to the next and to the previous one,
+ * and the executer works on the latest version. So a client of version {@code v} needs {@code LATEST - v} mappers
+ * for the request and as many for the response.
+ *
+ * @author Haroldo Macêdo
+ *
+ */
+final class BenchmarkModel {
+
+  static final int LATEST = 8;
+
+  private BenchmarkModel() {
+  }
+
+  public abstract static class Customer implements Entity {
+    public long id;
+    public String name;
+    public int level;
+  }
+
+  @EntityVersion(name = "customer", version = 1)
+  public static class CustomerV1 extends Customer {
+  }
+
+  @EntityVersion(name = "customer", version = 2)
+  public static class CustomerV2 extends Customer {
+  }
+
+  @EntityVersion(name = "customer", version = 3)
+  public static class CustomerV3 extends Customer {
+  }
+
+  @EntityVersion(name = "customer", version = 4)
+  public static class CustomerV4 extends Customer {
+  }
+
+  @EntityVersion(name = "customer", version = 5)
+  public static class CustomerV5 extends Customer {
+  }
+
+  @EntityVersion(name = "customer", version = 6)
+  public static class CustomerV6 extends Customer {
+  }
+
+  @EntityVersion(name = "customer", version = 7)
+  public static class CustomerV7 extends Customer {
+  }
+
+  @EntityVersion(name = "customer", version = 8)
+  public static class CustomerV8 extends Customer {
+  }
+
+  /**
+   * Version not mapped by any mapper.
+   */
+  @EntityVersion(name = "customer", version = 9)
+  public static class CustomerV9 extends Customer {
+  }
+
+  /**
+   * Entity not mapped by any mapper.
+   */
+  @EntityVersion(name = "supplier", version = 1)
+  public static class SupplierV1 implements Entity {
+  }
+
+  public static class FindCustomer implements ExecuteOperationVersion {
+    @Override
+    @ExecuteVersion(inputEntity = "customer", inputVersion = LATEST, outputEntity = "customer", outputVersion = LATEST)
+    public Entity execute(Entity entity) {
+      Customer customer = (Customer) entity;
+      CustomerV8 found = new CustomerV8();
+      found.id = customer.id;
+      found.name = customer.name;
+      found.level = customer.level + 1;
+      return found;
+    }
+  }
+
+  /**
+   * Copies a customer to the next or previous version.
+   */
+  static final class CustomerMapper implements DeclaredEntityVersionMapper {
+    private final int fromVersion;
+    private final int toVersion;
+
+    CustomerMapper(int fromVersion, int toVersion) {
+      this.fromVersion = fromVersion;
+      this.toVersion = toVersion;
+    }
+
+    @Override
+    public Entity map(Entity entity) {
+      Customer from = (Customer) entity;
+      Customer to = newCustomer(toVersion);
+      to.id = from.id;
+      to.name = from.name;
+      to.level = from.level;
+      return to;
+    }
+
+    @Override
+    public String entityName() {
+      return "customer";
+    }
+
+    @Override
+    public int fromVersion() {
+      return fromVersion;
+    }
+
+    @Override
+    public int toVersion() {
+      return toVersion;
+    }
+  }
+
+  /**
+   * Mapper whose entity is given at run time, to register many entities.
+   */
+  static final class StepMapper implements DeclaredEntityVersionMapper {
+    private final String entityName;
+    private final int fromVersion;
+
+    StepMapper(String entityName, int fromVersion) {
+      this.entityName = entityName;
+      this.fromVersion = fromVersion;
+    }
+
+    @Override
+    public Entity map(Entity entity) {
+      return entity;
+    }
+
+    @Override
+    public String entityName() {
+      return entityName;
+    }
+
+    @Override
+    public int fromVersion() {
+      return fromVersion;
+    }
+
+    @Override
+    public int toVersion() {
+      return fromVersion + 1;
+    }
+  }
+
+  /**
+   * @return The mappers of entity {@code customer}.
+   */
+  static EntityVersionMapper[] customerMappers() {
+    List<EntityVersionMapper> mappers = new ArrayList<>();
+    for (int version = 1; version < LATEST; version++) {
+      mappers.add(new CustomerMapper(version, version + 1));
+      mappers.add(new CustomerMapper(version + 1, version));
+    }
+    return mappers.toArray(new EntityVersionMapper[mappers.size()]);
+  }
+
+  /**
+   * @param entityCount - Number of entities.
+   * @param versions - Number of versions of each entity.
+   * @return Mappers from each version to the next one of the entities named by {@link #entityName(int)}.
+   */
+  static EntityVersionMapper[] stepMappers(int entityCount, int versions) {
+    EntityVersionMapper[] mappers = new EntityVersionMapper[entityCount * (versions - 1)];
+    for (int i = 0; i < entityCount; i++)
+      for (int version = 1; version < versions; version++)
+        mappers[i * (versions - 1) + version - 1] = new StepMapper(entityName(i), version);
+    return mappers;
+  }
+
+  static String entityName(int index) {
+    return "entity" + index;
+  }
+
+  /**
+   * @return A new customer of a version, from 1 to {@value #LATEST}.
+   */
+  static Customer newCustomer(int version) {
+    switch (version) {
+    case 1: return new CustomerV1();
+    case 2: return new CustomerV2();
+    case 3: return new CustomerV3();
+    case 4: return new CustomerV4();
+    case 5: return new CustomerV5();
+    case 6: return new CustomerV6();
+    case 7: return new CustomerV7();
+    case 8: return new CustomerV8();
+    default: throw new IllegalArgumentException("No customer version " + version);
+    }
+  }
+
+  static Customer customer(int version, long id) {
+    Customer customer = newCustomer(version);
+    customer.id = id;
+    customer.name = "Customer " + id;
+    return customer;
+  }
+}
@@ -0,0 +1,80 @@
+package com.versioning;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.versioning.entity.Entity;
+import com.versioning.model.ExecuteOperationVersion;
+import com.versioning.model.ExecuteVersion;
+
+/**
+ * Throughput of an expensive executer called by many threads with a few distinct inputs, with and without
+ * an {@link ExecutionCoalescer} that shares the concurrent executions with the same input.
+ *
+ * @author Haroldo Macêdo
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class CoalescerBenchmark {
+
+  private static final int KEYS = 4;
+
+  public static class SlowFindCustomer implements ExecuteOperationVersion {
+    @Override
+    @ExecuteVersion(inputEntity = "customer", inputVersion = BenchmarkModel.LATEST, outputEntity = "customer", outputVersion = BenchmarkModel.LATEST)
+    public Entity execute(Entity entity) {
+      Blackhole.consumeCPU(20_000);
+      return new BenchmarkModel.FindCustomer().execute(entity);
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class Executer {
+    @Param({ "false", "true" })
+    public boolean coalesced;
+
+    VersionExecuter executer;
+
+    @Setup
+    public void setUp() throws VersioningConfigurationException {
+      ExecutionCoalescer coalescer = coalesced ? new ExecutionCoalescer(entity -> ((BenchmarkModel.Customer) entity).id) : null;
+      executer = VersionConfigure.newContext(BenchmarkModel.customerMappers()).get(new SlowFindCustomer(), null, coalescer);
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class Requests {
+    final Entity[] requests = new Entity[KEYS];
+    int next;
+
+    @Setup
+    public void setUp() {
+      for (int i = 0; i < KEYS; i++)
+        requests[i] = BenchmarkModel.customer(BenchmarkModel.LATEST - 1, i);
+    }
+  }
+
+  @Benchmark
+  public Entity execute(Executer executer, Requests requests) throws VersioningConfigurationException {
+    Entity request = requests.requests[requests.next++ % KEYS];
+    return executer.executer.execute(request, request.getClass());
+  }
+}
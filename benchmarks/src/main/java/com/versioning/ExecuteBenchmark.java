@@ -0,0 +1,58 @@
+package com.versioning;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.versioning.entity.Entity;
+
+/**
+ * Latency of {@link VersionExecuter#execute(Entity, Class)} for a client {@code hops} versions older than the executer,
+ * so the request and the response are each mapped by {@code hops} mappers. With no hops, only the version check is done.<br>
+ * Parameter {@code fused} compares the plain loop over the mappers of a chain with the fused chains of
+ * {@link VersionConfigure#setFusedChains(boolean)}.
+ *
+ * @author Haroldo Macêdo
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExecuteBenchmark {
+
+  @Param({ "0", "1", "7" })
+  public int hops;
+
+  @Param({ "false", "true" })
+  public boolean fused;
+
+  private VersionExecuter executer;
+  private Entity request;
+  private Class<? extends Entity> responseClass;
+
+  @Setup
+  public void setUp() throws VersioningConfigurationException {
+    VersionConfigure.setFusedChains(fused);
+    executer = VersionConfigure.newContext(BenchmarkModel.customerMappers()).get(new BenchmarkModel.FindCustomer());
+    request = BenchmarkModel.customer(BenchmarkModel.LATEST - hops, 42);
+    responseClass = request.getClass();
+  }
+
+  @Benchmark
+  public Entity execute() throws VersioningConfigurationException {
+    return executer.execute(request, responseClass);
+  }
+}
@@ -0,0 +1,49 @@
+package com.versioning;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.versioning.map.EntityVersionMapper;
+
+/**
+ * Time to register thousands of mappers, in a new {@link VersioningContext}, of entities with {@value #VERSIONS} versions.
+ *
+ * @author Haroldo Macêdo
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RegistrationBenchmark {
+
+  private static final int VERSIONS = 5;
+
+  @Param({ "1000", "10000" })
+  public int mappers;
+
+  private EntityVersionMapper[] entityVersionMappers;
+
+  @Setup
+  public void setUp() {
+    entityVersionMappers = BenchmarkModel.stepMappers(mappers / (VERSIONS - 1), VERSIONS);
+  }
+
+  @Benchmark
+  public VersioningContext register() {
+    return VersionConfigure.newContext(entityVersionMappers);
+  }
+}
@@ -0,0 +1,74 @@
+package com.versioning;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.versioning.entity.Entity;
+
+/**
+ * Throughput of {@link VersionExecuter#execute(Entity, Class)} when part of the requests are rejected.<br>
+ * The rejected requests cycle through an unknown entity, a request of a version newer than the executer,
+ * and a response to a version newer than the executer. The accepted ones are mapped by one mapper each way.
+ *
+ * @author Haroldo Macêdo
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RejectionBenchmark {
+
+  /**
+   * Percentage of rejected requests, a multiple of 10.
+   */
+  @Param({ "0", "50" })
+  public int rejectedPercent;
+
+  private VersionExecuter executer;
+  private Entity[] requests;
+  private Class<?>[] responseClasses;
+  private int next;
+
+  @Setup
+  public void setUp() throws VersioningConfigurationException {
+    executer = VersionConfigure.newContext(BenchmarkModel.customerMappers()).get(new BenchmarkModel.FindCustomer());
+
+    Entity good = BenchmarkModel.customer(BenchmarkModel.LATEST - 1, 42);
+    Entity[] bad = { new BenchmarkModel.SupplierV1(), new BenchmarkModel.CustomerV9(), good };
+    Class<?>[] badResponses = { good.getClass(), good.getClass(), BenchmarkModel.CustomerV9.class };
+
+    //  30 requests, so each kind of rejection has the same share.
+    requests = new Entity[30];
+    responseClasses = new Class<?>[30];
+    for (int i = 0; i < requests.length; i++) {
+      boolean rejected = (i % 10) < rejectedPercent / 10;
+      requests[i] = rejected ? bad[i % 3] : good;
+      responseClasses[i] = rejected ? badResponses[i % 3] : good.getClass();
+    }
+  }
+
+  @Benchmark
+  @SuppressWarnings("unchecked")
+  public Object execute() {
+    int i = next++ % requests.length;
+    try {
+      return executer.execute(requests[i], (Class<? extends Entity>) responseClasses[i]);
+    } catch (VersioningConfigurationException e) {
+      return e;
+    }
+  }
+}
@@ -0,0 +1,61 @@
+package com.versioning;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Latency of the search of a resolved route, {@link MapEntityVersion#getMapperChain(String, int, int)}, across many entity names.<br>
+ * Each entity has {@value #VERSIONS} versions, and the routes from the first version to every other one are resolved
+ * at setup, so only the lookup of the cached chain is measured.
+ *
+ * @author Haroldo Macêdo
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RouteLookupBenchmark {
+
+  private static final int VERSIONS = 5;
+
+  /**
+   * Number of entity names, a power of two.
+   */
+  @Param({ "16", "1024", "16384" })
+  public int entities;
+
+  private MapEntityVersion mappings;
+  private String[] entityNames;
+  private int next;
+
+  @Setup
+  public void setUp() throws VersioningConfigurationException {
+    mappings = MapEntityVersion.empty().withMappers(MapEntityVersion.getRegistrations(BenchmarkModel.stepMappers(entities, VERSIONS)));
+    entityNames = new String[entities];
+    for (int i = 0; i < entities; i++) {
+      entityNames[i] = BenchmarkModel.entityName(i);
+      for (int version = 2; version <= VERSIONS; version++)
+        mappings.getMapperChain(entityNames[i], 1, version);
+    }
+  }
+
+  @Benchmark
+  public MapperChain lookup() throws VersioningConfigurationException {
+    int i = next++;
+    return mappings.getMapperChain(entityNames[i & (entities - 1)], 1, 2 + (i & 3));
+  }
+}
@@ -0,0 +1,71 @@
+package com.versioning;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.versioning.entity.Entity;
+
+/**
+ * Throughput of {@link VersionExecuter#execute(Entity, Class)} called by many threads, for clients of all versions.<br>
+ * Parameter {@code frozen} compares the executers of the global mappers, read from a volatile field at each request,
+ * with the ones of a frozen {@link VersioningContext}.
+ *
+ * @author Haroldo Macêdo
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class ThroughputBenchmark {
+
+  @State(Scope.Benchmark)
+  public static class Executer {
+    @Param({ "false", "true" })
+    public boolean frozen;
+
+    VersionExecuter executer;
+
+    @Setup
+    public void setUp() throws VersioningConfigurationException {
+      VersionConfigure.registerMappers(BenchmarkModel.customerMappers());
+      VersioningContext context = frozen ? VersionConfigure.freeze() : VersioningContext.global();
+      executer = context.get(new BenchmarkModel.FindCustomer());
+    }
+  }
+
+  /**
+   * Requests of each thread, one of each version.
+   */
+  @State(Scope.Thread)
+  public static class Requests {
+    final Entity[] requests = new Entity[BenchmarkModel.LATEST];
+    int next;
+
+    @Setup
+    public void setUp() {
+      for (int i = 0; i < requests.length; i++)
+        requests[i] = BenchmarkModel.customer(i + 1, i);
+    }
+  }
+
+  @Benchmark
+  public Entity execute(Executer executer, Requests requests) throws VersioningConfigurationException {
+    Entity request = requests.requests[requests.next++ & (BenchmarkModel.LATEST - 1)];
+    return executer.executer.execute(request, request.getClass());
+  }
+}
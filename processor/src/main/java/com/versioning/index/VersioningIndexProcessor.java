@@ -0,0 +1,330 @@
+package com.versioning.index;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+
+import com.versioning.entity.Entity;
+import com.versioning.entity.EntityVersion;
+import com.versioning.map.EntityVersionMap;
+import com.versioning.map.EntityVersionMapper;
+import com.versioning.model.ExecuteOperationVersion;
+import com.versioning.model.ExecuteVersion;
+
+/**
+ * Annotation processor that generates the {@link VersioningIndex} of the compiled classes.<br>
+ * It reads the {@link EntityVersion}, {@link EntityVersionMap} and {@link ExecuteVersion} annotations, reports
+ * invalid versions as compilation errors, and generates a class that declares them all.<br>
+ * Entities are declared by class name and mappers by constructor reference, so each one is loaded and created
+ * only when it is used. Mappers are indexed only if they are public classes with a public constructor with no parameters.
+ * Other mappers are reported with a note and must still be registered by
+ * {@link com.versioning.VersionConfigure#registerMappers(EntityVersionMapper...) VersionConfigure.registerMappers()}.<br><br>
+ * The generated class is {@code GeneratedVersioningIndex}, in the first package, in alphabetical order,
+ * of the annotated classes. Option {@value #INDEX_CLASS_OPTION} sets another name, which is needed when
+ * more than one library of an application has an index in the same package:
+ * <pre>
+ * javac -Aversioning.index.class=com.example.orders.OrdersVersioningIndex ...
+ * </pre>
+ * The processor is in module {@code processor}, not in the library, and is added to the annotation processor path
+ * of the application build.<br>
+ * The names of the indexed classes are also written to {@value #INDEXED_CLASSES}. An incremental build compiles only the changed
+ * classes, so the classes of the previous index not compiled again are read from the class output and indexed again,
+ * and the ones deleted or no longer annotated are dropped. If no annotated class changed, the processor doesn't run,
+ * so the previous index is kept as it is.
+ *
+ * @author Haroldo Macêdo
+ *
+ */
+@SupportedOptions(VersioningIndexProcessor.INDEX_CLASS_OPTION)
+public class VersioningIndexProcessor extends AbstractProcessor {
+
+  /**
+   * Processor option with the fully qualified name of the generated class.
+   */
+  public static final String INDEX_CLASS_OPTION = "versioning.index.class";
+
+  private static final String DEFAULT_CLASS_NAME = "GeneratedVersioningIndex";
+
+  /**
+   * Resource with the name of each class of the last generated index, one per line.
+   */
+  static final String INDEXED_CLASSES = "META-INF/versioning/indexed-classes";
+
+  /**
+   * Generated lines of each kind of declaration, sorted by class name, so the index is the same on every build.
+   */
+  private final Map<String, String> entities = new TreeMap<>();
+  private final Map<String, String> mappers = new TreeMap<>();
+  private final Map<String, String> executers = new TreeMap<>();
+  private final Set<String> packages = new TreeSet<>();
+  private final List<Element> originatingElements = new ArrayList<>();
+  private boolean written;
+
+  @Override
+  public Set<String> getSupportedAnnotationTypes() {
+    return new HashSet<>(Arrays.asList(EntityVersion.class.getName(), EntityVersionMap.class.getName(), ExecuteVersion.class.getName()));
+  }
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+    if (roundEnv.processingOver())
+      return false;
+
+    for (Element element : roundEnv.getElementsAnnotatedWith(EntityVersion.class))
+      indexEntity((TypeElement) element);
+    for (Element element : roundEnv.getElementsAnnotatedWith(EntityVersionMap.class))
+      indexMapper((ExecutableElement) element);
+    for (Element element : roundEnv.getElementsAnnotatedWith(ExecuteVersion.class))
+      indexExecuter((ExecutableElement) element);
+
+    //  Written in the first round with annotations, javac warns about classes created in the last round.
+    if (!written && !originatingElements.isEmpty()) {
+      indexPreviousClasses();
+      writeIndex();
+      written = true;
+    }
+
+    //  The annotations are also read by the framework, other processors may use them too.
+    return false;
+  }
+
+  private void indexEntity(TypeElement type) {
+    EntityVersion entityVersion = type.getAnnotation(EntityVersion.class);
+    if (!isSubtype(type, Entity.class)) {
+      error(type, "Class annotated with @EntityVersion must implement " + Entity.class.getName() + ".");
+      return;
+    }
+    if (entityVersion.version() <= 0) {
+      error(type, "Invalid version " + entityVersion.version() + " of entity '" + entityVersion.name() + "'. Versions start in 1.");
+      return;
+    }
+    if (!isPublic(type)) {
+      note(type, "Entity " + type.getQualifiedName() + " is not public, it is not indexed.");
+      return;
+    }
+
+    add(entities, type, String.format("registry.entity(%s, %s, %d);",
+        literal(processingEnv.getElementUtils().getBinaryName(type).toString()), literal(entityVersion.name()), entityVersion.version()));
+  }
+
+  private void indexMapper(ExecutableElement method) {
+    EntityVersionMap versionMap = method.getAnnotation(EntityVersionMap.class);
+    TypeElement type = (TypeElement) method.getEnclosingElement();
+    if (!isSubtype(type, EntityVersionMapper.class) || !method.getSimpleName().contentEquals("map") || method.getParameters().size() != 1) {
+      error(method, "@EntityVersionMap must annotate method map(Entity) of a class that implements " + EntityVersionMapper.class.getName() + ".");
+      return;
+    }
+    if (versionMap.fromVersion() <= 0 || versionMap.toVersion() <= 0) {
+      error(method, "Invalid version number of entity '" + versionMap.entityName() + "' from version " + versionMap.fromVersion()
+          + " to version " + versionMap.toVersion() + ". Versions start in 1.");
+      return;
+    }
+    if (versionMap.cost() < 0) {
+      error(method, "Invalid cost " + versionMap.cost() + " of entity '" + versionMap.entityName() + "'. Cost can't be negative.");
+      return;
+    }
+    if (versionMap.fromVersion() == versionMap.toVersion()) {
+      warning(method, "Same version mapping of entity '" + versionMap.entityName() + "' from version " + versionMap.fromVersion()
+          + " is ignored by the framework.");
+      return;
+    }
+    if (!isInstantiable(type)) {
+      note(type, "Mapper " + type.getQualifiedName() + " has no public constructor with no parameters, it is not indexed. Register it with VersionConfigure.registerMappers().");
+      return;
+    }
+
+    add(mappers, type, String.format("registry.lazyMapper(%s::new, %s, %d, %d, %d);",
+        type.getQualifiedName(), literal(versionMap.entityName()), versionMap.fromVersion(), versionMap.toVersion(), versionMap.cost()));
+  }
+
+  private void indexExecuter(ExecutableElement method) {
+    ExecuteVersion executeVersion = method.getAnnotation(ExecuteVersion.class);
+    TypeElement type = (TypeElement) method.getEnclosingElement();
+    if (!isSubtype(type, ExecuteOperationVersion.class) || !method.getSimpleName().contentEquals("execute") || method.getParameters().size() != 1) {
+      error(method, "@ExecuteVersion must annotate method execute(Entity) of a class that implements " + ExecuteOperationVersion.class.getName() + ".");
+      return;
+    }
+    if (executeVersion.inputVersion() <= 0 || executeVersion.outputVersion() <= 0) {
+      error(method, "Invalid version of entity '" + executeVersion.inputEntity() + "' v" + executeVersion.inputVersion()
+          + " or entity '" + executeVersion.outputEntity() + "' v" + executeVersion.outputVersion() + ". Versions start in 1.");
+      return;
+    }
+    if (!isPublic(type)) {
+      note(type, "Executer " + type.getQualifiedName() + " is not public, it is not indexed.");
+      return;
+    }
+
+    add(executers, type, String.format("registry.executer(%s.class, %s, %d, %s, %d);", type.getQualifiedName(),
+        literal(executeVersion.inputEntity()), executeVersion.inputVersion(), literal(executeVersion.outputEntity()), executeVersion.outputVersion()));
+  }
+
+  /**
+   * Index again the classes of the previous index that are not compiled in this build, read from the class output.
+   */
+  private void indexPreviousClasses() {
+    List<String> previousClasses = new ArrayList<>();
+    try {
+      FileObject resource = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", INDEXED_CLASSES);
+      try (BufferedReader reader = new BufferedReader(resource.openReader(true))) {
+        for (String line = reader.readLine(); line != null; line = reader.readLine())
+          if (!line.isEmpty())
+            previousClasses.add(line);
+      }
+    } catch (IOException | IllegalArgumentException e) {
+      //  No previous index, a full build.
+      return;
+    }
+
+    Set<String> indexedClasses = new HashSet<>();
+    for (Element element : originatingElements)
+      indexedClasses.add(((TypeElement) element).getQualifiedName().toString());
+    for (String className : previousClasses) {
+      TypeElement type = processingEnv.getElementUtils().getTypeElement(className);
+      if (type == null || !indexedClasses.add(className))
+        continue;
+
+      if (type.getAnnotation(EntityVersion.class) != null)
+        indexEntity(type);
+      for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements())) {
+        if (method.getAnnotation(EntityVersionMap.class) != null)
+          indexMapper(method);
+        if (method.getAnnotation(ExecuteVersion.class) != null)
+          indexExecuter(method);
+      }
+    }
+  }
+
+  private void add(Map<String, String> lines, TypeElement type, String line) {
+    if (written) {
+      //  Classes generated by other processors in later rounds.
+      warning(type, "Class " + type.getQualifiedName() + " was generated after the versioning index, it is not indexed.");
+      return;
+    }
+
+    lines.put(type.getQualifiedName().toString(), line);
+    packages.add(processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString());
+    originatingElements.add(type);
+  }
+
+  /**
+   * Write the index class and the service file that lists it.
+   */
+  private void writeIndex() {
+    String indexClass = processingEnv.getOptions().get(INDEX_CLASS_OPTION);
+    if (indexClass == null) {
+      String firstPackage = packages.iterator().next();
+      indexClass = (firstPackage.isEmpty() ? "" : firstPackage + ".") + DEFAULT_CLASS_NAME;
+    }
+
+    int lastDot = indexClass.lastIndexOf('.');
+    try {
+      JavaFileObject source = processingEnv.getFiler().createSourceFile(indexClass, originatingElements.toArray(new Element[originatingElements.size()]));
+      try (Writer writer = source.openWriter()) {
+        if (lastDot > 0)
+          writer.write("package " + indexClass.substring(0, lastDot) + ";\n\n");
+        writer.write("/**\n * Generated by " + VersioningIndexProcessor.class.getName() + ". Don't change.\n */\n");
+        writer.write("public final class " + indexClass.substring(lastDot + 1) + " implements " + VersioningIndex.class.getName() + " {\n\n");
+        writer.write("  @Override\n");
+        writer.write("  public void register(" + VersioningIndex.Registry.class.getCanonicalName() + " registry) {\n");
+        for (Map<String, String> lines : Arrays.asList(entities, mappers, executers))
+          for (String line : lines.values())
+            writer.write("    " + line + "\n");
+        writer.write("  }\n}\n");
+      }
+
+      FileObject service = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "",
+          "META-INF/services/" + VersioningIndex.class.getName());
+      try (Writer writer = service.openWriter()) {
+        writer.write(indexClass + "\n");
+      }
+
+      Set<String> indexedClasses = new TreeSet<>();
+      for (Element element : originatingElements)
+        indexedClasses.add(((TypeElement) element).getQualifiedName().toString());
+      FileObject classList = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", INDEXED_CLASSES);
+      try (Writer writer = classList.openWriter()) {
+        for (String className : indexedClasses)
+          writer.write(className + "\n");
+      }
+    } catch (IOException e) {
+      processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Can't write versioning index " + indexClass + ": " + e);
+    }
+  }
+
+  private boolean isSubtype(TypeElement type, Class<?> superType) {
+    TypeMirror superMirror = processingEnv.getElementUtils().getTypeElement(superType.getCanonicalName()).asType();
+    return processingEnv.getTypeUtils().isAssignable(processingEnv.getTypeUtils().erasure(type.asType()), superMirror);
+  }
+
+  /**
+   * @return true if the class and all classes it is nested in are public, so the generated class can refer to it.
+   */
+  private static boolean isPublic(TypeElement type) {
+    for (Element element = type; element.getKind().isClass() || element.getKind().isInterface(); element = element.getEnclosingElement()) {
+      if (!element.getModifiers().contains(Modifier.PUBLIC))
+        return false;
+    }
+    return true;
+  }
+
+  /**
+   * @return true if the generated class can create the object with {@code new}.
+   */
+  private static boolean isInstantiable(TypeElement type) {
+    if (!isPublic(type) || type.getKind() != ElementKind.CLASS || type.getModifiers().contains(Modifier.ABSTRACT))
+      return false;
+    if (type.getNestingKind() == NestingKind.MEMBER && !type.getModifiers().contains(Modifier.STATIC))
+      return false;
+
+    for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements()))
+      if (constructor.getParameters().isEmpty() && constructor.getModifiers().contains(Modifier.PUBLIC))
+        return true;
+    return false;
+  }
+
+  private String literal(String value) {
+    return processingEnv.getElementUtils().getConstantExpression(value);
+  }
+
+  private void error(Element element, String message) {
+    processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+  }
+
+  private void warning(Element element, String message) {
+    processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, message, element);
+  }
+
+  private void note(Element element, String message) {
+    processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, message, element);
+  }
+}
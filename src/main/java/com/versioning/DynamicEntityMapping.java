@@ -0,0 +1,56 @@
+package com.versioning;
+
+import com.versioning.entity.DynamicEntity;
+import com.versioning.entity.Entity;
+
+/**
+ * Maps a {@link com.versioning.entity.DynamicEntity DynamicEntity}, whose version is declared by its 
+ * {@link com.versioning.entity.EntitySchema EntitySchema} instead of its class:
+ * <pre>
+ * DynamicEntity v5 = DynamicEntityMapping.map(customerV1Entity, 5);
+ * </pre>
+ * The mappers of the route are usually built by {@link com.versioning.map.SchemaMapping SchemaMapping},
+ * and each one must return a {@link com.versioning.entity.DynamicEntity DynamicEntity}.
+ *
+ * @author Haroldo Macêdo
+ *
+ */
+public final class DynamicEntityMapping {
+
+  private DynamicEntityMapping() {
+  }
+
+  /**
+   * Map an entity to another version, with the mappers registered by {@link VersionConfigure}.
+   *
+   * @see #map(DynamicEntity, int, VersioningContext)
+   */
+  public static DynamicEntity map(DynamicEntity entity, int toVersion) throws VersioningConfigurationException {
+    return map(entity, toVersion, VersioningContext.global());
+  }
+
+  /**
+   * Map an entity to another version.<br>
+   * Either a request, from an older to a newer version, or a response, from a newer to an older version.
+   *
+   * @param entity - Entity to map.
+   * @param toVersion - Version of the returned entity.
+   * @param context - Context of the mappers.
+   * @return The mapped entity, or {@code entity} itself for the same version.
+   * @throws VersioningConfigurationException - If there is no mapping, or a mapper doesn't return a dynamic entity.
+   */
+  public static DynamicEntity map(DynamicEntity entity, int toVersion, VersioningContext context) throws VersioningConfigurationException {
+    String entityName = entity.schema().name();
+    int fromVersion = entity.schema().version();
+    if (fromVersion == toVersion)
+      return entity;
+
+    MapperChain mapperChain = context.mappings().getMapperChain(entityName, fromVersion, toVersion);
+    Entity mapped = MapEntityVersion.map(entity, mapperChain);
+    if (!(mapped instanceof DynamicEntity))
+      throw new VersioningConfigurationException("Mappers of " + mapperChain.route() + " returned " 
+          + (mapped == null ? "null" : mapped.getClass().getName()) + " instead of a " + DynamicEntity.class.getSimpleName() + ".");
+
+    return (DynamicEntity) mapped;
+  }
+}
@@ -0,0 +1,144 @@
+package com.versioning;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import com.versioning.entity.Entity;
+
+/**
+ * Shares one execution among concurrent requests with the same input, for executers that return the same result
+ * for the same input while they run, such as lookups hit by bursts of identical requests.<br>
+ * The key is computed from the input entity after it is mapped to the executer version, so requests of all client versions
+ * share the same execution. The first request executes the executer, and the requests with the same key received while it runs
+ * wait for its result. Then the response is mapped for each request, to the version of its client.
+ * The result is passed to the response mappers many times, so these mappers must not change the entity they receive.
+ * Requests of the executer version receive the same entity object, with no mapping and no copy, so callers must treat
+ * the returned entities as immutable.<br>
+ * Nothing is kept after an execution ends. Used with a {@link ResponseCache}, only the requests not found in the cache
+ * are coalesced. An executer must not call itself with the same key, or it waits for its own result forever.
+ * <pre>
+ * ExecutionCoalescer coalescer = new ExecutionCoalescer(entity -> ((CustomerQueryV3) entity).getId());
+ * VersionExecuter executer = VersionConfigure.get(new FindCustomerV3(), null, coalescer);
+ * </pre>
+ *
+ * @author Haroldo Macêdo
+ *
+ */
+public final class ExecutionCoalescer {
+
+  private final Function<? super Entity, ?> keyFunction;
+  /**
+   * Result of each execution running, by key.
+   */
+  private final ConcurrentMap<Object, CompletableFuture<Entity>> inFlight = new ConcurrentHashMap<>();
+  private final LongAdder executions = new LongAdder();
+  private final LongAdder coalesced = new LongAdder();
+
+  /**
+   * Create the coalescer.
+   *
+   * @param keyFunction - Returns the key of an input entity, in the executer input version.
+   *     The key must implement {@code equals()} and {@code hashCode()}. Entities with a null key are always executed.
+   */
+  public ExecutionCoalescer(Function<? super Entity, ?> keyFunction) {
+    this.keyFunction = keyFunction;
+  }
+
+  /**
+   * Execution of the executer by {@link VersionOperationWrapper}.
+   */
+  interface Execution {
+    Entity execute() throws VersioningConfigurationException;
+  }
+
+  /**
+   * @param entity - Input entity, in the executer input version.
+   * @return Key of the entity, or null if its execution must not be shared.
+   */
+  Object key(Entity entity) {
+    return keyFunction.apply(entity);
+  }
+
+  /**
+   * Execute, or wait for the execution with the same key that is running.<br>
+   * Waiting requests receive the same result, or the same exception, of the execution.
+   *
+   * @param key - Key returned by {@link #key(Entity)}.
+   * @param execution - Executes the executer.
+   * @return Entity returned by the executer.
+   * @throws VersioningConfigurationException - Thrown by the execution.
+   */
+  Entity execute(Object key, Execution execution) throws VersioningConfigurationException {
+    if (key == null) {
+      executions.increment();
+      return execution.execute();
+    }
+
+    CompletableFuture<Entity> flight = new CompletableFuture<>();
+    CompletableFuture<Entity> running = inFlight.putIfAbsent(key, flight);
+    if (running != null) {
+      coalesced.increment();
+      return await(running);
+    }
+
+    executions.increment();
+    Entity entityOut;
+    try {
+      entityOut = execution.execute();
+    } catch (Throwable e) {
+      inFlight.remove(key, flight);
+      flight.completeExceptionally(e);
+      throw e;
+    }
+
+    //  Requests received from now on start a new execution.
+    inFlight.remove(key, flight);
+    flight.complete(entityOut);
+    return entityOut;
+  }
+
+  private static Entity await(CompletableFuture<Entity> running) throws VersioningConfigurationException {
+    try {
+      return running.join();
+    } catch (CompletionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof VersioningConfigurationException)
+        throw (VersioningConfigurationException) cause;
+      if (cause instanceof RuntimeException)
+        throw (RuntimeException) cause;
+      if (cause instanceof Error)
+        throw (Error) cause;
+      throw e;
+    }
+  }
+
+  /**
+   * @return Number of executions running.
+   */
+  public int inFlight() {
+    return inFlight.size();
+  }
+
+  /**
+   * @return Number of requests that executed the executer.
+   */
+  public long getExecutions() {
+    return executions.sum();
+  }
+
+  /**
+   * @return Number of requests that received the result of an execution started by another request.
+   */
+  public long getCoalesced() {
+    return coalesced.sum();
+  }
+
+  @Override
+  public String toString() {
+    return "ExecutionCoalescer [inFlight=" + inFlight() + ", executions=" + getExecutions() + ", coalesced=" + getCoalesced() + "]";
+  }
+}
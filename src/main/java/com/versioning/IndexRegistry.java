@@ -0,0 +1,67 @@
+package com.versioning;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import com.versioning.entity.Entity;
+import com.versioning.entity.EntityDescriptor;
+import com.versioning.index.VersioningIndex;
+import com.versioning.map.EntityVersionMapper;
+import com.versioning.model.ExecuteOperationVersion;
+
+/**
+ * Receives the declarations of the {@link com.versioning.index.VersioningIndex VersioningIndex} objects.<br>
+ * Entities and executers are declared as they are received. Mappers are kept, so they are all registered
+ * and published by {@link MapEntityVersion} at once.
+ *
+ * @author Haroldo Macêdo
+ *
+ */
+final class IndexRegistry implements VersioningIndex.Registry {
+
+  private final List<MapperRegistration> registrations = new ArrayList<>();
+  private int entities;
+  private int executers;
+
+  @Override
+  public void entity(Class<? extends Entity> entityClass, String name, int version) {
+    EntityDescriptor.index(entityClass, name, version);
+    entities++;
+  }
+
+  @Override
+  public void entity(String entityClassName, String name, int version) {
+    EntityDescriptor.index(entityClassName, name, version);
+    entities++;
+  }
+
+  @Override
+  public void mapper(EntityVersionMapper mapper, String entityName, int fromVersion, int toVersion, int cost) {
+    registrations.add(new MapperRegistration(entityName, fromVersion, toVersion, cost, mapper));
+  }
+
+  @Override
+  public void lazyMapper(Supplier<? extends EntityVersionMapper> mapper, String entityName, int fromVersion, int toVersion, int cost) {
+    registrations.add(new MapperRegistration(entityName, fromVersion, toVersion, cost, mapper));
+  }
+
+  @Override
+  public void executer(Class<? extends ExecuteOperationVersion> executerClass, String inputEntity, int inputVersion,
+      String outputEntity, int outputVersion) {
+    VersionOperationWrapper.index(executerClass, new EntityDescriptor(inputEntity, inputVersion), new EntityDescriptor(outputEntity, outputVersion));
+    executers++;
+  }
+
+  List<MapperRegistration> registrations() {
+    return registrations;
+  }
+
+  int entities() {
+    return entities;
+  }
+
+  int executers() {
+    return executers;
+  }
+}
@@ -0,0 +1,62 @@
+package com.versioning;
+
+import java.nio.ByteBuffer;
+
+import com.versioning.entity.EntityDescriptor;
+
+/**
+ * Maps an {@link com.versioning.entity.Entity Entity} in its JSON form, with no entity objects created.<br>
+ * Used, for instance, by gateways that receive and send JSON: instead of reading the JSON into an entity of the client version,
+ * mapping it and writing the mapped entity, the renames, drops and fixed values of the mappers are applied directly to the bytes:
+ * <pre>
+ * ByteBuffer v5 = JsonEntityMapping.map(requestBody, new EntityDescriptor("customer", 1), new EntityDescriptor("customer", 5));
+ * </pre>
+ * All mappers of the route must be {@link com.versioning.map.StructuralEntityVersionMapper StructuralEntityVersionMapper} objects,
+ * such as the ones built by {@link com.versioning.map.FieldMapping FieldMapping}, and the JSON member names must be the property names.
+ * The JSON must be UTF-8. Only its top level members are renamed, dropped or added; the values are copied as they are.
+ *
+ * @author Haroldo Macêdo
+ *
+ */
+public final class JsonEntityMapping {
+
+  private JsonEntityMapping() {
+  }
+
+  /**
+   * Map the JSON of an entity from a version to another one, with the mappers registered by {@link VersionConfigure}.
+   *
+   * @see #map(ByteBuffer, EntityDescriptor, EntityDescriptor, VersioningContext)
+   */
+  public static ByteBuffer map(ByteBuffer json, EntityDescriptor fromVersion, EntityDescriptor toVersion) throws VersioningConfigurationException {
+    return map(json, fromVersion, toVersion, VersioningContext.global());
+  }
+
+  /**
+   * Map the JSON of an entity from a version to another one.<br>
+   * Either a request, from an older to a newer version, or a response, from a newer to an older version.
+   *
+   * @param json - UTF-8 JSON object of the entity, from the position to the limit of the buffer. Its position is not changed.
+   * @param fromVersion - Name and version of the entity in {@code json}.
+   * @param toVersion - Name and version of the returned entity.
+   * @param context - Context of the mappers.
+   * @return New buffer with the mapped JSON object, ready to be read, or {@code json} itself for the same version.
+   * @throws VersioningConfigurationException - If there is no mapping, a mapper is not structural or the JSON is malformed.
+   */
+  public static ByteBuffer map(ByteBuffer json, EntityDescriptor fromVersion, EntityDescriptor toVersion, VersioningContext context)
+      throws VersioningConfigurationException {
+    if (fromVersion.id() != toVersion.id())
+      throw new VersioningConfigurationException("Trying to map entity '" + fromVersion.name() + "' to entity '" + toVersion.name() + "'. Don't know how to map!");
+    if (fromVersion.version() == toVersion.version())
+      return json;
+
+    MapperChain mapperChain = context.mappings().getMapperChain(fromVersion.name(), fromVersion.version(), toVersion.version());
+    VersioningListener listener = MapEntityVersion.getListener();
+    long start = (listener == null ? 0 : System.nanoTime());
+    ByteBuffer mapped = mapperChain.mapJson(json);
+    if (listener != null)
+      listener.mapped(mapperChain.route(), System.nanoTime() - start);
+
+    return mapped;
+  }
+}
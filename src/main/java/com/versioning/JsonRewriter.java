@@ -0,0 +1,255 @@
+package com.versioning;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import com.versioning.map.PropertyRewrite;
+
+/**
+ * Applies a {@link com.versioning.map.PropertyRewrite PropertyRewrite} to the UTF-8 JSON object of an entity.<br>
+ * Only the names of the top level members are read. The value of each copied member is copied as bytes,
+ * with no parsing beyond finding where it ends, so nested objects and arrays are copied as they are.
+ * Members with no copy are dropped, and members with fixed values are added at the end of the object.<br>
+ * Member names are compared as they are written, so names with escape sequences don't match the property names.
+ *
+ * @author Haroldo Macêdo
+ *
+ */
+final class JsonRewriter {
+
+  /**
+   * UTF-8 bytes of each copied member name in the initial version, with no quotes.
+   */
+  private final byte[][] fromNames;
+  /**
+   * For each name in {@link #fromNames}, the UTF-8 bytes of {@code "name":} in the final version.
+   */
+  private final byte[][] toMembers;
+  /**
+   * UTF-8 bytes of the members with fixed values, separated by commas, or an empty array if there is none.
+   */
+  private final byte[] defaultMembers;
+  /**
+   * Number of bytes the output may have more than the input if each renamed member appears once.
+   * The output buffer grows when members are repeated.
+   */
+  private final int expectedGrowth;
+
+  /**
+   * Create the rewriter.
+   *
+   * @param propertyRewrite - Properties copied and set.
+   * @throws VersioningConfigurationException - If a fixed value can't be written as JSON.
+   */
+  JsonRewriter(PropertyRewrite propertyRewrite) throws VersioningConfigurationException {
+    Map<String, String> copies = propertyRewrite.getCopies();
+    fromNames = new byte[copies.size()][];
+    toMembers = new byte[copies.size()][];
+    int growth = 0;
+    int i = 0;
+    for (Map.Entry<String, String> copy : copies.entrySet()) {
+      fromNames[i] = copy.getKey().getBytes(StandardCharsets.UTF_8);
+      toMembers[i] = (quote(copy.getValue()) + ":").getBytes(StandardCharsets.UTF_8);
+      growth += Math.max(0, toMembers[i].length - fromNames[i].length);
+      i++;
+    }
+
+    StringBuilder defaults = new StringBuilder();
+    for (Map.Entry<String, Object> value : propertyRewrite.getDefaults().entrySet()) {
+      if (defaults.length() > 0)
+        defaults.append(',');
+      defaults.append(quote(value.getKey())).append(':').append(toJson(value.getKey(), value.getValue()));
+    }
+    defaultMembers = defaults.toString().getBytes(StandardCharsets.UTF_8);
+    expectedGrowth = growth + defaultMembers.length + 1;
+  }
+
+  /**
+   * Rewrite a JSON object.<br>
+   * Repeated members are rewritten as many times as they appear, in the order they appear.
+   *
+   * @param json - JSON object, from its position to its limit. Its position is not changed.
+   * @return New buffer with the rewritten object, ready to be read.
+   * @throws VersioningConfigurationException - If the JSON is not an object or is malformed.
+   */
+  ByteBuffer rewrite(ByteBuffer json) throws VersioningConfigurationException {
+    ByteBuffer out = ByteBuffer.allocate(json.remaining() + expectedGrowth);
+    ByteBuffer value = json.duplicate();
+    int limit = json.limit();
+    int pos = skipWhitespace(json, json.position(), limit);
+    expect(json, pos++, limit, '{');
+    out.put((byte) '{');
+
+    boolean first = true;
+    pos = skipWhitespace(json, pos, limit);
+    if (pos < limit && json.get(pos) == '}') {
+      pos++;
+    } else {
+      while (true) {
+        expect(json, pos, limit, '"');
+        int nameStart = pos + 1;
+        pos = skipString(json, pos, limit);
+        int nameEnd = pos - 1;
+        pos = skipWhitespace(json, pos, limit);
+        expect(json, pos++, limit, ':');
+        int valueStart = skipWhitespace(json, pos, limit);
+        pos = skipValue(json, valueStart, limit);
+
+        int copy = findName(json, nameStart, nameEnd);
+        if (copy >= 0) {
+          value.limit(pos);
+          value.position(valueStart);
+          out = ensureCapacity(out, toMembers[copy].length + value.remaining() + 1);
+          if (!first)
+            out.put((byte) ',');
+          out.put(toMembers[copy]);
+          out.put(value);
+          value.limit(limit);
+          first = false;
+        }
+
+        pos = skipWhitespace(json, pos, limit);
+        if (pos < limit && json.get(pos) == ',') {
+          pos = skipWhitespace(json, pos + 1, limit);
+          continue;
+        }
+        expect(json, pos++, limit, '}');
+        break;
+      }
+    }
+
+    out = ensureCapacity(out, defaultMembers.length + 2);
+    if (defaultMembers.length > 0) {
+      if (!first)
+        out.put((byte) ',');
+      out.put(defaultMembers);
+    }
+    out.put((byte) '}');
+    out.flip();
+    return out;
+  }
+
+  /**
+   * @return The buffer, or a copy with at least {@code needed} more bytes of space.
+   */
+  private static ByteBuffer ensureCapacity(ByteBuffer out, int needed) {
+    if (out.remaining() >= needed)
+      return out;
+
+    ByteBuffer larger = ByteBuffer.allocate(Math.max(out.capacity() * 2, out.position() + needed));
+    out.flip();
+    return larger.put(out);
+  }
+
+  /**
+   * @return Index of the name in {@link #fromNames}, or -1 if the member is not copied.
+   */
+  private int findName(ByteBuffer json, int start, int end) {
+    int length = end - start;
+    for (int i = 0; i < fromNames.length; i++) {
+      byte[] name = fromNames[i];
+      if (name.length != length)
+        continue;
+
+      int j = 0;
+      while (j < length && json.get(start + j) == name[j])
+        j++;
+      if (j == length)
+        return i;
+    }
+    return -1;
+  }
+
+  private static int skipWhitespace(ByteBuffer json, int pos, int limit) {
+    while (pos < limit) {
+      byte b = json.get(pos);
+      if (b != ' ' && b != '\t' && b != '\n' && b != '\r')
+        break;
+      pos++;
+    }
+    return pos;
+  }
+
+  /**
+   * @return Position after the closing quote of the string that starts at {@code pos}.
+   */
+  private static int skipString(ByteBuffer json, int pos, int limit) throws VersioningConfigurationException {
+    for (pos++; pos < limit; pos++) {
+      byte b = json.get(pos);
+      if (b == '\\')
+        pos++;
+      else if (b == '"')
+        return pos + 1;
+    }
+    throw new VersioningConfigurationException("Malformed JSON: string not closed.");
+  }
+
+  /**
+   * @return Position after the value that starts at {@code pos}.
+   */
+  private static int skipValue(ByteBuffer json, int pos, int limit) throws VersioningConfigurationException {
+    if (pos >= limit)
+      throw new VersioningConfigurationException("Malformed JSON: value expected at position " + pos + ".");
+
+    byte b = json.get(pos);
+    if (b == '"')
+      return skipString(json, pos, limit);
+
+    if (b == '{' || b == '[') {
+      //  Skip the whole object or array, including the brackets inside strings.
+      int depth = 0;
+      while (pos < limit) {
+        b = json.get(pos);
+        if (b == '"') {
+          pos = skipString(json, pos, limit);
+          continue;
+        }
+        if (b == '{' || b == '[')
+          depth++;
+        else if ((b == '}' || b == ']') && --depth == 0)
+          return pos + 1;
+        pos++;
+      }
+      throw new VersioningConfigurationException("Malformed JSON: object or array not closed.");
+    }
+
+    //  Number, true, false or null.
+    int start = pos;
+    while (pos < limit && (b = json.get(pos)) != ',' && b != '}' && b != ']' && b != ' ' && b != '\t' && b != '\n' && b != '\r')
+      pos++;
+    if (pos == start)
+      throw new VersioningConfigurationException("Malformed JSON: value expected at position " + pos + ".");
+    return pos;
+  }
+
+  private static void expect(ByteBuffer json, int pos, int limit, char expected) throws VersioningConfigurationException {
+    if (pos >= limit || json.get(pos) != expected)
+      throw new VersioningConfigurationException("Malformed JSON: '" + expected + "' expected at position " + pos + ".");
+  }
+
+  private static String toJson(String property, Object value) throws VersioningConfigurationException {
+    if ((value instanceof Double && !Double.isFinite((Double) value)) || (value instanceof Float && !Float.isFinite((Float) value)))
+      throw new VersioningConfigurationException("Default value " + value + " of property '" + property + "' can't be written as JSON.");
+    if (value == null || value instanceof Number || value instanceof Boolean)
+      return String.valueOf(value);
+    if (value instanceof CharSequence || value instanceof Character || value instanceof Enum)
+      return quote(value instanceof Enum ? ((Enum<?>) value).name() : value.toString());
+
+    throw new VersioningConfigurationException("Default value " + value + " of property '" + property + "' can't be written as JSON.");
+  }
+
+  private static String quote(String text) {
+    StringBuilder quoted = new StringBuilder(text.length() + 2).append('"');
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (c == '"' || c == '\\')
+        quoted.append('\\').append(c);
+      else if (c < 0x20)
+        quoted.append(String.format("\\u%04x", (int) c));
+      else
+        quoted.append(c);
+    }
+    return quoted.append('"').toString();
+  }
+}
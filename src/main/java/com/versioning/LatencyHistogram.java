@@ -0,0 +1,100 @@
+package com.versioning;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of latencies, in nanoseconds.<br>
+ * Each bucket counts the values of the same power of two, so a value is recorded with a single
+ * {@link LongAdder} increment and percentiles are precise to a factor of two. 
+ * {@link LongAdder} spreads concurrent increments over separate cells, so request threads don't contend.
+ *
+ * @author Haroldo Macêdo
+ *
+ */
+final class LatencyHistogram {
+
+  private static final int BUCKETS = 64;
+
+  private final LongAdder[] buckets = new LongAdder[BUCKETS];
+  private final LongAdder total = new LongAdder();
+
+  LatencyHistogram() {
+    for (int i = 0; i < BUCKETS; i++)
+      buckets[i] = new LongAdder();
+  }
+
+  /**
+   * Record one value.
+   *
+   * @param nanos - Latency, in nanoseconds.
+   */
+  void record(long nanos) {
+    //  Bucket i holds the values with i significant bits, from 2^(i-1) to 2^i - 1. Bucket 0 holds zero.
+    long value = Math.max(nanos, 0);
+    buckets[BUCKETS - Long.numberOfLeadingZeros(value)].increment();
+    total.add(value);
+  }
+
+  /**
+   * Record the same value many times.
+   *
+   * @param nanos - Latency, in nanoseconds.
+   * @param count - Number of times the value is recorded.
+   */
+  void record(long nanos, int count) {
+    long value = Math.max(nanos, 0);
+    buckets[BUCKETS - Long.numberOfLeadingZeros(value)].add(count);
+    total.add(value * count);
+  }
+
+  /**
+   * @return Number of recorded values.
+   */
+  long count() {
+    long count = 0;
+    for (LongAdder bucket : buckets)
+      count += bucket.sum();
+    return count;
+  }
+
+  /**
+   * @return Mean of the recorded values, or zero if none was recorded.
+   */
+  double mean() {
+    long count = count();
+    return count == 0 ? 0 : (double) total.sum() / count;
+  }
+
+  /**
+   * Return the value below which a percentage of the recorded values are.
+   *
+   * @param percentile - Percentage, from 0 to 100.
+   * @return Upper limit of the bucket of the percentile, or zero if no value was recorded.
+   */
+  long percentile(double percentile) {
+    long[] counts = new long[BUCKETS];
+    long count = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      counts[i] = buckets[i].sum();
+      count += counts[i];
+    }
+    if (count == 0)
+      return 0;
+
+    long rank = (long) Math.ceil(count * percentile / 100);
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += counts[i];
+      if (seen >= rank && counts[i] > 0)
+        return i == BUCKETS - 1 ? Long.MAX_VALUE : (1L << i) - 1;
+    }
+
+    return Long.MAX_VALUE;
+  }
+
+  void reset() {
+    for (LongAdder bucket : buckets)
+      bucket.reset();
+    total.reset();
+  }
+}
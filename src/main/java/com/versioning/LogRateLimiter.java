@@ -0,0 +1,43 @@
+package com.versioning;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Allows a message to be logged at most once in an interval, counting the messages not logged.<br>
+ * Callers check {@link #tryLog()} before formatting the message, so the skipped messages cost no allocation.
+ *
+ * @author Haroldo Macêdo
+ *
+ */
+final class LogRateLimiter {
+
+  private final long intervalNanos;
+  private final AtomicLong nextLog = new AtomicLong(System.nanoTime());
+  private final LongAdder suppressed = new LongAdder();
+
+  LogRateLimiter(long interval, TimeUnit unit) {
+    this.intervalNanos = unit.toNanos(interval);
+  }
+
+  /**
+   * @return true if the message can be logged now, false if it must be skipped.
+   */
+  boolean tryLog() {
+    long now = System.nanoTime();
+    long next = nextLog.get();
+    if (now - next >= 0 && nextLog.compareAndSet(next, now + intervalNanos))
+      return true;
+
+    suppressed.increment();
+    return false;
+  }
+
+  /**
+   * @return Number of messages skipped since the last call.
+   */
+  long takeSuppressed() {
+    return suppressed.sumThenReset();
+  }
+}
@@ -1,20 +1,31 @@
 package com.versioning;
 
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import com.versioning.entity.Entity;
-import com.versioning.entity.EntityVersion;
+import com.versioning.entity.EntityDescriptor;
+import com.versioning.map.DeclaredEntityVersionMapper;
 import com.versioning.map.EntityVersionMap;
 import com.versioning.map.EntityVersionMapper;
-import com.versioning.model.ExecuteVersion;
 
 /**
  * Class that manages all entities versions available.<br>
@@ -25,12 +36,18 @@ import com.versioning.model.ExecuteVersion;
  * Method {@link #registerMappers(EntityVersionMapper...) registerMappers()} must be called to
  * store (or register) the entities mappers {@link com.versioning.map.EntityVersionMapper EntityVersionMapper}.<br><br>
  * Later, a call to 
- * {@link #mapRequest(Entity, EntityVersion, ExecuteVersion) mapRequest()} or 
- * {@link #mapResponse(Entity, EntityVersion, ExecuteVersion) mapResponse()}
+ * {@link #mapRequest(Entity, EntityDescriptor, EntityDescriptor) mapRequest()} or 
+ * {@link #mapResponse(Entity, EntityDescriptor, EntityDescriptor) mapResponse()}
  * triggers the chain of execution to transform the version of the 
  * {@link com.versioning.entity.Entity Entity} passed as a parameter to the 
  * version accepted by the actual business execution class described by 
- * {@link com.versioning.model.ExecuteVersion ExecuteVersion}.
+ * {@link com.versioning.model.ExecuteVersion ExecuteVersion}.<br><br>
+ * Objects of this class are never changed. Registration creates a new object, with a new copy of the changed
+ * {@link VersionPath} objects, and publishes it as the {@link #global() global} one at once, so requests read the 
+ * registered mappers without locking and mappers can be registered while requests are running.
+ * Each frozen {@link VersioningContext} keeps its own object.<br>
+ * Registration during requests is checked by {@code RegistryStressCheck}, in {@code src/test/java}, which registers mappers
+ * while other threads map entities and fails at the first torn read.
  * 
  * @author Haroldo Macêdo
  *
@@ -39,11 +56,81 @@ class MapEntityVersion {
 
   private static Logger logger = LogManager.getFormatterLogger(MapEntityVersion.class.getName());
 
+  /**
+   * Mappers registered by {@link VersionConfigure}, used by the global {@link VersioningContext}.<br>
+   * Registration replaces this object by a new one with the new mappers.
+   */
+  private static volatile MapEntityVersion global = new MapEntityVersion(Collections.emptyMap());
+
   /**
    * Main object of this framework.
-   * Contains the all the version transformation objects for each entity name.
+   * Contains the all the version transformation objects for each entity name.<br>
+   * The map and its {@link VersionPath} objects are never changed after created. 
+   */
+  private final Map<String, VersionPath> entities;
+
+  /**
+   * When true, each {@link MapperChain} is executed as a single composed call.
+   */
+  private static volatile boolean fusedChains;
+
+  /**
+   * Receives the time spent on each mapping and execution. Nothing is measured when null.
+   */
+  private static volatile VersioningListener listener;
+
+  /**
+   * Limits the log of requests rejected by {@link UnmappableRouteException}, that may be sent by a misbehaving client on every request.
+   */
+  private static final LogRateLimiter rejectionLog = new LogRateLimiter(10, TimeUnit.SECONDS);
+
+  /**
+   * Exception thrown for all entities not mapped by any mapper, so clients sending arbitrary entity names create no objects.
+   */
+  private static final UnmappableRouteException UNKNOWN_ENTITY = new UnmappableRouteException("No class to map entity. Entity is not mapped by any mapper",
+      null, 0, 0);
+
+  /**
+   * Exception thrown for each pair of different entities, such as a request of an entity to an executer of another one,
+   * indexed by the {@link RouteTable#key(int, int) RouteTable.key()} of their {@link EntityDescriptor#id() ids}.
+   * Entities are read from annotated classes, so the number of pairs is limited by the classes of the application.
    */
-  private static final Map<String, VersionPath> entities = new HashMap<>();
+  private static final RouteTable<UnmappableRouteException> entityRejections = new RouteTable<>();
+
+  /**
+   * Exception thrown for each class with no {@link com.versioning.entity.EntityVersion EntityVersion} annotation.
+   */
+  private static final ClassValue<UnmappableRouteException> unannotatedRejections = new ClassValue<UnmappableRouteException>() {
+    @Override
+    protected UnmappableRouteException computeValue(Class<?> entityClass) {
+      return new UnmappableRouteException("Annotation for class " + entityClass.getName() + " is not defined.", null, 0, 0);
+    }
+  };
+
+  /**
+   * Create the object with the mappers of some entities.
+   * 
+   * @param entities - Mappers of each entity name, not changed after this call.
+   */
+  private MapEntityVersion(Map<String, VersionPath> entities) {
+    this.entities = entities;
+  }
+
+  /**
+   * @return The mappers registered by {@link VersionConfigure}, at the time of the call.
+   */
+  static MapEntityVersion global() {
+    return global;
+  }
+
+  /**
+   * Create an object with no mappers.
+   * 
+   * @return The object, to which mappers are added by {@link #withMappers(List) withMappers()}.
+   */
+  static MapEntityVersion empty() {
+    return new MapEntityVersion(Collections.emptyMap());
+  }
 
   /**
    * Transform the version of an {@link com.versioning.entity.Entity Entity} received in this request 
@@ -56,17 +143,49 @@ class MapEntityVersion {
    * @return Entity transformed to the executable version.
    * @throws VersioningConfigurationException - If some configuration error is found, such as lack of annotations.
    */
-  static Entity mapRequest(Entity entity, EntityVersion versionInput, ExecuteVersion executeVersion) throws VersioningConfigurationException {
-    logger.info("Mapping request of entity '%s' from version %d to version %d.", versionInput.name(), versionInput.version(), executeVersion.inputVersion());
-    
+  Entity mapRequest(Entity entity, EntityDescriptor versionInput, EntityDescriptor executeVersion) throws VersioningConfigurationException {
+    validateRequest(versionInput, executeVersion);
+    return map(entity, versionInput.name(), versionInput.version(), executeVersion.version());
+  }
+
+  /**
+   * Transform, in place, the version of all {@link com.versioning.entity.Entity Entity} objects received in a request.<br>
+   * Same as {@link #mapRequest(Entity, EntityDescriptor, EntityDescriptor) mapRequest()}, but the validation and the search
+   * for the mappers are done once for all entities.
+   *  
+   * @param entities - Entities of the same version, replaced by the entities mapped to version {executeVersion}.
+   * @param versionInput - Version of the input entities.
+   * @param executeVersion - Version of the input entity on the executable object.
+   * @throws VersioningConfigurationException - If some configuration error is found, such as lack of annotations.
+   */
+  void mapRequestAll(Entity[] entities, EntityDescriptor versionInput, EntityDescriptor executeVersion) throws VersioningConfigurationException {
+    validateRequest(versionInput, executeVersion);
+    mapAll(entities, versionInput.name(), versionInput.version(), executeVersion.version());
+  }
+
+  /**
+   * Add the mapping of a request to a stream of {@link com.versioning.entity.Entity Entity} objects.<br>
+   * The validation and the search for the mappers are done now. Each entity is mapped when the returned stream is consumed.
+   *  
+   * @param entities - Stream of entities of version {versionInput}.
+   * @param versionInput - Version of the input entities.
+   * @param executeVersion - Version of the input entity on the executable object.
+   * @return Lazy stream of the entities mapped to version {executeVersion}.
+   * @throws VersioningConfigurationException - If some configuration error is found, such as lack of annotations.
+   */
+  Stream<Entity> mapRequestStream(Stream<Entity> entities, EntityDescriptor versionInput, EntityDescriptor executeVersion) throws VersioningConfigurationException {
+    validateRequest(versionInput, executeVersion);
+    return mapStream(entities, versionInput.name(), versionInput.version(), executeVersion.version());
+  }
+
+  private void validateRequest(EntityDescriptor versionInput, EntityDescriptor executeVersion) throws VersioningConfigurationException {
     //  Don't know how to map different entities.
-    if (!versionInput.name().equals(executeVersion.inputEntity()))
-      throw new VersioningConfigurationException("Don't know how to map!. Trying to map entity '" + versionInput.name() + "' to entity '" + executeVersion.inputEntity() + "'." );
-    
-    if (versionInput.version() > executeVersion.inputVersion())
-      throw new VersioningConfigurationException("Request can't map to previous version. Trying to map entity '" + versionInput.name() + "' from version " + versionInput.version() + " to version " + executeVersion.inputVersion() + ".");
+    if (versionInput.id() != executeVersion.id())
+      throw reject(getEntityRejection(versionInput, executeVersion), versionInput.name(), versionInput.version(), executeVersion.version());
     
-    return map(entity, versionInput.name(), versionInput.version(), executeVersion.inputVersion());
+    if (versionInput.version() > executeVersion.version())
+      throw reject(getDirectionRejection(versionInput.name(), versionInput.version(), executeVersion.version()), 
+          versionInput.name(), versionInput.version(), executeVersion.version());
   }
   
   /**
@@ -81,17 +200,51 @@ class MapEntityVersion {
    * @return Entity transformed from the return of the executable version to the expected {versionOutput} version.
    * @throws VersioningConfigurationException - If some configuration error is found, such as lack of annotations.
    */
-  static Entity mapResponse(Entity entity, EntityVersion versionOutput, ExecuteVersion executeVersion) throws VersioningConfigurationException {
-    logger.info("Mapping response of entity '%s' from version %d to version %d.", versionOutput.name(), executeVersion.outputVersion(), versionOutput.version());
+  Entity mapResponse(Entity entity, EntityDescriptor versionOutput, EntityDescriptor executeVersion) throws VersioningConfigurationException {
+    validateResponse(versionOutput, executeVersion);
+    return map(entity, versionOutput.name(), executeVersion.version(), versionOutput.version());
+  }
+
+  /**
+   * Transform, in place, the version of all {@link com.versioning.entity.Entity Entity} objects returned 
+   * by the executable object.<br>
+   * Same as {@link #mapResponse(Entity, EntityDescriptor, EntityDescriptor) mapResponse()}, but the validation and the search
+   * for the mappers are done once for all entities.
+   * 
+   * @param entities - Entities returned by the executable object, replaced by the entities mapped to version {versionOutput}.
+   * @param versionOutput - Version of the returned entities.
+   * @param executeVersion - Version returned by the executable object.
+   * @throws VersioningConfigurationException - If some configuration error is found, such as lack of annotations.
+   */
+  void mapResponseAll(Entity[] entities, EntityDescriptor versionOutput, EntityDescriptor executeVersion) throws VersioningConfigurationException {
+    validateResponse(versionOutput, executeVersion);
+    mapAll(entities, versionOutput.name(), executeVersion.version(), versionOutput.version());
+  }
+
+  /**
+   * Add the mapping of a response to a stream of {@link com.versioning.entity.Entity Entity} objects returned 
+   * by the executable object.<br>
+   * The validation and the search for the mappers are done now. Each entity is mapped when the returned stream is consumed.
+   * 
+   * @param entities - Stream of entities returned by the executable object.
+   * @param versionOutput - Version of the returned entities.
+   * @param executeVersion - Version returned by the executable object.
+   * @return Lazy stream of the entities mapped to version {versionOutput}.
+   * @throws VersioningConfigurationException - If some configuration error is found, such as lack of annotations.
+   */
+  Stream<Entity> mapResponseStream(Stream<Entity> entities, EntityDescriptor versionOutput, EntityDescriptor executeVersion) throws VersioningConfigurationException {
+    validateResponse(versionOutput, executeVersion);
+    return mapStream(entities, versionOutput.name(), executeVersion.version(), versionOutput.version());
+  }
 
+  private void validateResponse(EntityDescriptor versionOutput, EntityDescriptor executeVersion) throws VersioningConfigurationException {
     //  Don't know how to map different entities.
-    if (!versionOutput.name().equals(executeVersion.outputEntity()))
-      throw new VersioningConfigurationException("Trying to map entity '" + versionOutput.name() + "' to entity '" + executeVersion.outputEntity() + "'. Don't know how to map!" );
+    if (versionOutput.id() != executeVersion.id())
+      throw reject(getEntityRejection(executeVersion, versionOutput), executeVersion.name(), executeVersion.version(), versionOutput.version());
     
-    if (versionOutput.version() > executeVersion.outputVersion())
-      throw new VersioningConfigurationException("Response can't map to next version. Trying to map entity '" + versionOutput.name() + "' from version " + executeVersion.outputVersion() + " to version " + versionOutput.version() + ".");
-    
-    return map(entity, versionOutput.name(), executeVersion.outputVersion(), versionOutput.version());
+    if (versionOutput.version() > executeVersion.version())
+      throw reject(getDirectionRejection(versionOutput.name(), executeVersion.version(), versionOutput.version()), 
+          versionOutput.name(), executeVersion.version(), versionOutput.version());
   }
   
   /**
@@ -104,58 +257,502 @@ class MapEntityVersion {
    * @return - Entity mapped to the final version.
    * @throws VersioningConfigurationException - If some configuration error is found, such as lack of annotations.
    */
-  private static Entity map(Entity entity, String entityName, int fromVersion, int toVersion) throws VersioningConfigurationException {
+  private Entity map(Entity entity, String entityName, int fromVersion, int toVersion) throws VersioningConfigurationException {
     //  Same version, no mapping needed.
     if (fromVersion == toVersion)
       return entity;
     
     //  Prepare the list of mappers to map entities
-    VersionPath versionPath = entities.get(entityName);
-    if (versionPath == null)
-      throw new VersioningConfigurationException("No class to map entity '" + entityName + "' from version " + fromVersion + " to version " + toVersion);
-    List<EntityVersionMapper> mappers = versionPath.getMappingPath(fromVersion, toVersion);
-    if (mappers == null)
-      throw new VersioningConfigurationException("No mapping was found to map entity '" + entityName + "' from version " + fromVersion + " to version " + toVersion);
-
-    //  Execute all mappers.
-    Entity entityReturn = entity;
-    for (EntityVersionMapper evm : mappers) {
-      logger.debug(" - %s", evm.getClass().getName());
-      entityReturn = evm.map(entityReturn);
-    }
-    logger.debug("Mapping End");
+    MapperChain mapperChain = getMapperChain(entityName, fromVersion, toVersion);
+
+    //  Execute all mappers, and then map the nested lists of the result.
+    Entity entityReturn = map(entity, mapperChain);
+    mapNestedLists(entityReturn);
+    if (logger.isDebugEnabled())
+      logger.debug("Mapping End of entity '%s' from version %d to version %d", entityName, fromVersion, toVersion);
     
     return entityReturn;
   }
+
+  /**
+   * Execute all mappers of a chain, reporting the time spent to the {@link VersioningListener}.
+   * 
+   * @param entity - Entity in the initial version of the chain.
+   * @param mapperChain - Chain of mappers.
+   * @return - Entity mapped to the final version of the chain.
+   */
+  static Entity map(Entity entity, MapperChain mapperChain) {
+    VersioningListener versioningListener = listener;
+    long start = (versioningListener == null ? 0 : System.nanoTime());
+    Entity entityReturn = (fusedChains ? mapperChain.mapFused(entity) : mapperChain.map(entity));
+    if (versioningListener != null)
+      versioningListener.mapped(mapperChain.route(), System.nanoTime() - start);
+
+    return entityReturn;
+  }
+
+  /**
+   * Do the map of many entities of the same version, either request or response.
+   * 
+   * @param entities - Entities to map, replaced by the mapped entities.
+   * @param entityName - Name of the entity to map.
+   * @param fromVersion - Initial version.
+   * @param toVersion - Final version.
+   * @throws VersioningConfigurationException - If some configuration error is found, such as lack of annotations.
+   */
+  private void mapAll(Entity[] entities, String entityName, int fromVersion, int toVersion) throws VersioningConfigurationException {
+    //  Same version, no mapping needed.
+    if (fromVersion == toVersion || entities.length == 0)
+      return;
+    
+    MapperChain mapperChain = getMapperChain(entityName, fromVersion, toVersion);
+
+    VersioningListener versioningListener = listener;
+    long start = (versioningListener == null ? 0 : System.nanoTime());
+    mapperChain.mapAll(entities);
+    if (versioningListener != null)
+      versioningListener.mappedAll(mapperChain.route(), entities.length, System.nanoTime() - start);
+
+    for (Entity entity : entities)
+      mapNestedLists(entity);
+  }
+
+  /**
+   * Do the map of a stream of entities of the same version, either request or response.
+   * 
+   * @param entities - Stream of entities to map.
+   * @param entityName - Name of the entity to map.
+   * @param fromVersion - Initial version.
+   * @param toVersion - Final version.
+   * @return Lazy stream of the mapped entities.
+   * @throws VersioningConfigurationException - If some configuration error is found, such as lack of annotations.
+   */
+  private Stream<Entity> mapStream(Stream<Entity> entities, String entityName, int fromVersion, int toVersion) throws VersioningConfigurationException {
+    //  Same version, no mapping needed.
+    if (fromVersion == toVersion)
+      return entities;
+    
+    //  Each entity is mapped and reported as by map(), unless a mapper works on the stream itself.
+    MapperChain mapperChain = getMapperChain(entityName, fromVersion, toVersion);
+    Stream<Entity> mapped = (mapperChain.isStreamMapped() ? measure(mapperChain.mapStream(entities), mapperChain.route())
+        : entities.map(entity -> map(entity, mapperChain)));
+    return mapped.map(entity -> {
+      NestedEntityMapping.mapNestedLists(entity, this);
+      return entity;
+    });
+  }
+
+  /**
+   * Report each entity of a stream mapped by a {@link com.versioning.map.StreamEntityVersionMapper StreamEntityVersionMapper} 
+   * to the {@link VersioningListener}.<br>
+   * Such a mapper may split or join entities, so the time of each entity is the time to pull it out of the mapped stream,
+   * which includes reading the entities it is made of from the source stream.
+   * 
+   * @param entities - Stream returned by {@link MapperChain#mapStream(Stream)}.
+   * @param route - Route of the chain.
+   * @return Lazy stream of the same entities.
+   */
+  private static Stream<Entity> measure(Stream<Entity> entities, MappingRoute route) {
+    Spliterator<Entity> spliterator = entities.spliterator();
+    return StreamSupport.stream(new Spliterators.AbstractSpliterator<Entity>(spliterator.estimateSize(), spliterator.characteristics()) {
+      private Entity next;
+
+      @Override
+      public boolean tryAdvance(Consumer<? super Entity> action) {
+        VersioningListener versioningListener = listener;
+        if (versioningListener == null)
+          return spliterator.tryAdvance(action);
+
+        long start = System.nanoTime();
+        if (!spliterator.tryAdvance(entity -> next = entity))
+          return false;
+        versioningListener.mapped(route, System.nanoTime() - start);
+
+        Entity entity = next;
+        next = null;
+        action.accept(entity);
+        return true;
+      }
+    }, false).onClose(entities::close);
+  }
+
+  /**
+   * Map the nested lists of an entity just mapped by a chain, with the mappers of this object.
+   * 
+   * @param entity - Entity in the final version of a chain.
+   * @throws VersioningConfigurationException - If a nested entity can't be mapped to the version of its list.
+   */
+  private void mapNestedLists(Entity entity) throws VersioningConfigurationException {
+    try {
+      NestedEntityMapping.mapNestedLists(entity, this);
+    } catch (UncheckedVersioningException e) {
+      throw e.getCause();
+    }
+  }
+
+  /**
+   * Return the chain of mappers that maps an entity from a version to another one.
+   * 
+   * @param entityName - Name of the entity to map.
+   * @param fromVersion - Initial version.
+   * @param toVersion - Final version.
+   * @return The chain of mappers.
+   * @throws UnmappableRouteException - If there is no mapping for the entity and versions.
+   */
+  MapperChain getMapperChain(String entityName, int fromVersion, int toVersion) throws UnmappableRouteException {
+    VersionPath versionPath = entities.get(entityName);
+    if (versionPath == null)
+      throw reject(UNKNOWN_ENTITY, entityName, fromVersion, toVersion);
+    MapperChain mapperChain = versionPath.getMappingPath(fromVersion, toVersion);
+    if (mapperChain == null)
+      throw reject(versionPath.getRejection(fromVersion, toVersion), entityName, fromVersion, toVersion);
+
+    return mapperChain;
+  }
+
+  /**
+   * @return The exception thrown when an entity is mapped in the wrong direction, shared by all requests with the same versions.
+   */
+  private UnmappableRouteException getDirectionRejection(String entityName, int fromVersion, int toVersion) {
+    VersionPath versionPath = entities.get(entityName);
+    return versionPath == null ? UNKNOWN_ENTITY : versionPath.getDirectionRejection(fromVersion, toVersion);
+  }
+
+  /**
+   * @return The exception thrown when an entity is mapped to another entity, shared by all requests of the same entities.
+   */
+  private static UnmappableRouteException getEntityRejection(EntityDescriptor from, EntityDescriptor to) {
+    long key = RouteTable.key(from.id(), to.id());
+    UnmappableRouteException rejection = entityRejections.get(key);
+    if (rejection == null) {
+      rejection = new UnmappableRouteException("Don't know how to map!. Trying to map entity '" + from.name() + "' to entity '" + to.name() + "'",
+          from.name(), 0, 0);
+      UnmappableRouteException storedRejection = entityRejections.putIfAbsent(key, rejection);
+      if (storedRejection != null)
+        rejection = storedRejection;
+    }
+
+    return rejection;
+  }
+
+  /**
+   * Return the name and version of an Entity class.<br>
+   * The annotation is read once for each class by {@link EntityDescriptor#of(Class)}.
+   * 
+   * @param entityClass - Entity class.
+   * @return The name and version of the class.
+   * @throws UnmappableRouteException - If the class has no annotation. The same exception is thrown for every call with the same class.
+   */
+  static EntityDescriptor getEntityDescriptor(Class<? extends Entity> entityClass) throws UnmappableRouteException {
+    EntityDescriptor entityDescriptor = EntityDescriptor.of(entityClass);
+    if (entityDescriptor == null)
+      throw reject(unannotatedRejections.get(entityClass));
+
+    return entityDescriptor;
+  }
+
+  /**
+   * Log a rejected request, at most once every few seconds.
+   * 
+   * @param rejection - Exception about to be thrown, whose message describes the request.
+   * @return The same exception.
+   */
+  static UnmappableRouteException reject(UnmappableRouteException rejection) {
+    if (rejectionLog.tryLog())
+      logger.warn("%s Requests rejected since last message: %d", rejection.getMessage(), rejectionLog.takeSuppressed() + 1);
+    return rejection;
+  }
+
+  /**
+   * Log a rejected request, at most once every few seconds.<br>
+   * The rejection may be shared by many entities or versions, so the ones of the request are logged with it.
+   * 
+   * @param rejection - Exception about to be thrown.
+   * @param entityName - Name of the rejected entity.
+   * @param fromVersion - Initial version of the rejected mapping.
+   * @param toVersion - Final version of the rejected mapping.
+   * @return The same exception.
+   */
+  static UnmappableRouteException reject(UnmappableRouteException rejection, String entityName, int fromVersion, int toVersion) {
+    if (rejectionLog.tryLog())
+      logger.warn("%s. Rejected entity '%s' from version %d to version %d. Requests rejected since last message: %d", 
+          rejection.getMessage(), entityName, fromVersion, toVersion, rejectionLog.takeSuppressed() + 1);
+    return rejection;
+  }
   
+  /**
+   * Return the cost of mapping an entity from a version to another one.
+   * 
+   * @param entityName - Name of the entity to map.
+   * @param fromVersion - Initial version.
+   * @param toVersion - Final version.
+   * @return The cost of the {@link MapperChain}, 0 for the same version, or -1 if there is no mapping.
+   */
+  long getMappingCost(String entityName, int fromVersion, int toVersion) {
+    if (fromVersion == toVersion)
+      return 0;
+
+    VersionPath versionPath = entities.get(entityName);
+    MapperChain mapperChain = (versionPath == null ? null : versionPath.getMappingPath(fromVersion, toVersion));
+    return mapperChain == null ? -1 : mapperChain.cost();
+  }
+
+  /**
+   * @param entityName - Name of the entity.
+   * @return Sorted list of all versions of the entity that some mapper maps from or to.
+   */
+  int[] getVersions(String entityName) {
+    VersionPath versionPath = entities.get(entityName);
+    return versionPath == null ? new int[0] : versionPath.getVersions();
+  }
+
+  /**
+   * Resolve the routes between an executer version and every older version of its entity, 
+   * adding them, or the problems found, to a report.<br>
+   * Versions newer than the executer version are not checked, since they are rejected by design.
+   * 
+   * @param executeVersion - Input or output version of the executable object.
+   * @param request - true for the executer input, mapped from older versions; false for the output, mapped to older versions.
+   * @param report - Report of the validation.
+   */
+  void validate(EntityDescriptor executeVersion, boolean request, VersioningReport report) {
+    VersionPath versionPath = entities.get(executeVersion.name());
+    if (versionPath == null) {
+      report.addProblem("No mapper registered for entity '" + executeVersion.name() + "'. Only version " 
+          + executeVersion.version() + " can be " + (request ? "requested." : "returned."));
+      return;
+    }
+
+    int[] versions = versionPath.getVersions();
+    if (Arrays.binarySearch(versions, executeVersion.version()) < 0)
+      report.addProblem("No mapper maps entity '" + executeVersion.name() + "' " + (request ? "to" : "from") 
+          + " version " + executeVersion.version() + ".");
+
+    for (int version : versions) {
+      if (version >= executeVersion.version())
+        break;
+
+      int fromVersion = (request ? version : executeVersion.version());
+      int toVersion = (request ? executeVersion.version() : version);
+      MapperChain mapperChain = versionPath.getMappingPath(fromVersion, toVersion);
+      if (mapperChain == null)
+        report.addProblem("No mapping was found to map entity '" + executeVersion.name() + "' from version " + fromVersion + " to version " + toVersion + ".");
+      else
+        report.addRoute(mapperChain.route());
+    }
+  }
+
+  /**
+   * Execute many times every route that starts at the version of a sample entity.
+   * 
+   * @param entity - Sample entity.
+   * @param entityVersion - Name and version of the sample entity.
+   * @param iterations - Number of executions of each route.
+   * @return Number of routes executed.
+   */
+  int warmUp(Entity entity, EntityDescriptor entityVersion, int iterations) {
+    VersionPath versionPath = entities.get(entityVersion.name());
+    if (versionPath == null)
+      return 0;
+
+    int warmed = 0;
+    for (int version : versionPath.getVersions()) {
+      MapperChain mapperChain = (version == entityVersion.version() ? null : versionPath.getMappingPath(entityVersion.version(), version));
+      if (mapperChain != null) {
+        mapperChain.warmUp(entity, iterations, fusedChains);
+        warmed++;
+      }
+    }
+
+    return warmed;
+  }
+
+  /**
+   * Log, for each entity and pair of versions already mapped, the number of mapped entities.<br>
+   * Used instead of logging every request and response.
+   */
+  void logStatistics() {
+    if (!logger.isInfoEnabled())
+      return;
+
+    for (Map.Entry<String, VersionPath> entry : entities.entrySet())
+      for (MapperChain mapperChain : entry.getValue().getResolvedPaths())
+        logger.info("Entity '%s' from version %d to version %d: %d entities mapped by %d mappers.", entry.getKey(),
+            mapperChain.route().getFromVersion(), mapperChain.route().getToVersion(), mapperChain.mapped(), mapperChain.size());
+  }
+
+  /**
+   * @return The listener of the framework measures, or null if none.
+   */
+  static VersioningListener getListener() {
+    return listener;
+  }
+
+  static void setListener(VersioningListener versioningListener) {
+    listener = versioningListener;
+  }
+
+  /**
+   * Enable or disable the execution of mapper chains as a single composed call.
+   * 
+   * @param fused - true to compose the chains.
+   */
+  static void setFusedChains(boolean fused) {
+    fusedChains = fused;
+  }
+
   /**
    * Register entity mappers.
    * 
    * @param entityVersionMappers - A list of entityVersionMappers to register.
    */
   static void registerMappers(EntityVersionMapper... entityVersionMappers) {
+    registerMappers(getRegistrations(entityVersionMappers));
+  }
+
+  /**
+   * Register entity mappers whose entity name and versions are already known, such as the ones
+   * declared by a {@link com.versioning.index.VersioningIndex VersioningIndex}.
+   * 
+   * @param registrations - Mappers and their entity name, versions and cost.
+   */
+  static synchronized void registerMappers(List<MapperRegistration> registrations) {
+    global = global.withMappers(registrations);
+  }
+
+  /**
+   * Replace the mappers of some entities by the ones read from a {@link RouteSnapshot}.<br>
+   * The mappers of other entities are kept.
+   * 
+   * @param versionPaths - Mappers and preloaded routes of each entity name.
+   */
+  static synchronized void registerEntities(Map<String, VersionPath> versionPaths) {
+    Map<String, VersionPath> newEntities = new HashMap<>(global.entities);
+    newEntities.putAll(versionPaths);
+    global = new MapEntityVersion(Collections.unmodifiableMap(newEntities));
+  }
+
+  /**
+   * @return The mappers of each entity name.
+   */
+  Map<String, VersionPath> getEntities() {
+    return entities;
+  }
+
+  /**
+   * Create a new object with the mappers of this one and some new ones.<br>
+   * Only the {@link VersionPath} objects of the changed entities are copied, the others are shared.
+   * 
+   * @param registrations - Mappers and their entity name, versions and cost.
+   * @return The new object.
+   */
+  MapEntityVersion withMappers(List<MapperRegistration> registrations) {
     logger.debug("Registering entity mappers");
-    for (EntityVersionMapper entityVersionMapper : entityVersionMappers) {
-        addVersionMapper(entityVersionMapper);
+    Map<String, VersionPath> changedEntities = new HashMap<>();
+    for (MapperRegistration registration : registrations) {
+        addVersionMapper(changedEntities, registration);
     }
+
+    Map<String, VersionPath> newEntities = new HashMap<>(entities);
+    newEntities.putAll(changedEntities);
     logger.debug("Registration done");
+    return new MapEntityVersion(Collections.unmodifiableMap(newEntities));
   }
-  
+
   /**
-   * Adds one entity mapper to the framework.
+   * Read the entity name, versions and cost of entity mappers.
+   * 
+   * @param entityVersionMappers - A list of entityVersionMappers.
+   * @return The mappers with their versions. Mappers with no versions defined are not returned.
+   */
+  static List<MapperRegistration> getRegistrations(EntityVersionMapper... entityVersionMappers) {
+    List<MapperRegistration> registrations = new ArrayList<>(entityVersionMappers.length);
+    for (EntityVersionMapper entityVersionMapper : entityVersionMappers) {
+      MapperRegistration registration = getRegistration(entityVersionMapper);
+      if (registration != null)
+        registrations.add(registration);
+    }
+
+    return registrations;
+  }
+
+  /**
+   * Read the entity name, versions and cost of entity mapper classes, with no mapper created.<br>
+   * Each mapper is created by its public constructor with no parameters the first time a route uses it.
+   * 
+   * @param mapperClasses - Classes of the mappers.
+   * @return The mappers with their versions.
+   * @throws VersioningConfigurationException - If a class has no annotation, declares its versions in its objects or can't be created.
+   */
+  static List<MapperRegistration> getRegistrations(List<Class<? extends EntityVersionMapper>> mapperClasses) throws VersioningConfigurationException {
+    List<MapperRegistration> registrations = new ArrayList<>(mapperClasses.size());
+    for (Class<? extends EntityVersionMapper> mapperClass : mapperClasses) {
+      if (DeclaredEntityVersionMapper.class.isAssignableFrom(mapperClass))
+        throw new VersioningConfigurationException("Mapper " + mapperClass.getName() + " declares its versions in its objects. Register an object of it.");
+
+      EntityVersionMap versionMap = getMethodAnnotations(mapperClass);
+      Constructor<? extends EntityVersionMapper> constructor;
+      try {
+        constructor = mapperClass.getConstructor();
+      } catch (NoSuchMethodException e) {
+        constructor = null;
+      }
+      if (constructor == null || !Modifier.isPublic(mapperClass.getModifiers()) || Modifier.isAbstract(mapperClass.getModifiers()))
+        throw new VersioningConfigurationException("Mapper " + mapperClass.getName() + " is not a public class with a public constructor with no parameters.");
+
+      Constructor<? extends EntityVersionMapper> mapperConstructor = constructor;
+      registrations.add(new MapperRegistration(versionMap, mapperClass, () -> newMapper(mapperConstructor)));
+    }
+
+    return registrations;
+  }
+
+  /**
+   * Create a mapper registered by its class.
+   * 
+   * @param constructor - Public constructor with no parameters of the mapper.
+   * @return The mapper.
+   * @throws IllegalStateException - If the constructor fails.
+   */
+  static EntityVersionMapper newMapper(Constructor<? extends EntityVersionMapper> constructor) {
+    logger.debug("Creating mapper %s", constructor.getDeclaringClass().getName());
+    try {
+      return constructor.newInstance();
+    } catch (InvocationTargetException e) {
+      throw new IllegalStateException("Can't create mapper " + constructor.getDeclaringClass().getName() + ": " + e.getCause(), e.getCause());
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException("Can't create mapper " + constructor.getDeclaringClass().getName() + ": " + e, e);
+    }
+  }
+
+  /**
+   * Get the annotations of an entity mapper, or its declared versions.
    * 
    * @param entityVersionMapper - Entity mapper that knwos how to transform entity from version {fromVersion} to {toVersion}.
+   * @return The entity name, versions and cost of the mapper, or null if they are not defined.
    */
-  private static void addVersionMapper(EntityVersionMapper entityVersionMapper) {
-    //  Get the annotations of the entityVersionMapper.
-    EntityVersionMap versionMapper;
+  private static MapperRegistration getRegistration(EntityVersionMapper entityVersionMapper) {
+    if (entityVersionMapper instanceof DeclaredEntityVersionMapper) {
+      DeclaredEntityVersionMapper declaredMapper = (DeclaredEntityVersionMapper) entityVersionMapper;
+      return new MapperRegistration(declaredMapper.entityName(), declaredMapper.fromVersion(), 
+          declaredMapper.toVersion(), declaredMapper.cost(), declaredMapper);
+    }
+
     try {
-      versionMapper = getMethodAnnotations(entityVersionMapper.getClass());
+      return new MapperRegistration(getMethodAnnotations(entityVersionMapper.getClass()), entityVersionMapper);
     } catch (VersioningConfigurationException e) {
-      e.printStackTrace();
-      return;
+      logger.error("Mapper %s not registered: %s", entityVersionMapper.getClass().getName(), e.getMessage());
+      return null;
     }
-    
+  }
+  
+  /**
+   * Adds one entity mapper to the framework.
+   * 
+   * @param changedEntities - Entities changed by this registration, not yet published.
+   * @param versionMapper - Entity mapper that knwos how to transform entity from version {fromVersion} to {toVersion}, and its versions.
+   */
+  private void addVersionMapper(Map<String, VersionPath> changedEntities, MapperRegistration versionMapper) {
     //  Validate version numbers.
     if (versionMapper.fromVersion() <= 0 || versionMapper.toVersion() <= 0) {
       logger.warn("Invalid version number of entity '%s'\tfrom version %d to version %d. Versions start in 1. Registration ignored.", 
@@ -163,6 +760,12 @@ class MapEntityVersion {
       return;
     }
 
+    if (versionMapper.cost() < 0) {
+      logger.warn("Invalid cost %d of entity '%s'\tfrom version %d to version %d. Cost can't be negative. Registration ignored.", 
+          versionMapper.cost(), versionMapper.entityName(), versionMapper.fromVersion(), versionMapper.toVersion());
+      return;
+    }
+
     // No mapping for same versions.
     if (versionMapper.fromVersion() == versionMapper.toVersion()) {
       logger.warn("Ignoring same version maping of entity '%s'\tfrom version %d to version %d.", 
@@ -171,18 +774,18 @@ class MapEntityVersion {
     }
 
     //  Get the entity this mapping maps.
-    VersionPath versionPath = entities.get(versionMapper.entityName());
-    // If entityVersionMap doesn't exist, create one and store in {entities}.
+    VersionPath versionPath = changedEntities.get(versionMapper.entityName());
+    // If not changed yet, copy the published one or create a new one and store in {changedEntities}.
     if (versionPath == null) {
-      //  First time, create and store entity.
-      versionPath = new VersionPath();
-      entities.put(versionMapper.entityName(), versionPath);
+      VersionPath publishedPath = entities.get(versionMapper.entityName());
+      versionPath = (publishedPath == null ? new VersionPath(versionMapper.entityName()) : publishedPath.copy());
+      changedEntities.put(versionMapper.entityName(), versionPath);
     }
 
     //  Register entity mapper.
     logger.debug("\tMap entity '%s'\tfrom version %d to version %d", 
         versionMapper.entityName(), versionMapper.fromVersion(), versionMapper.toVersion());
-    versionPath.add(entityVersionMapper, versionMapper.fromVersion(), versionMapper.toVersion());
+    versionPath.add(versionMapper);
   }
 
   /**
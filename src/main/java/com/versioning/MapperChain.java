@@ -0,0 +1,296 @@
+package com.versioning;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.versioning.entity.Entity;
+import com.versioning.map.BatchEntityVersionMapper;
+import com.versioning.map.EntityVersionMapper;
+import com.versioning.map.PropertyRewrite;
+import com.versioning.map.StreamEntityVersionMapper;
+import com.versioning.map.StructuralEntityVersionMapper;
+
+/**
+ * Immutable sequence of {@link com.versioning.map.EntityVersionMapper EntityVersionMapper} that transforms an
+ * {@link com.versioning.entity.Entity Entity} from a version to another one.<br>
+ * Chains are resolved once by {@link VersionPath} and reused by every request that maps the same versions.<br>
+ * A chain can also be executed {@link #mapFused(Entity) fused}, as a single method handle composed from all its mappers,
+ * or {@link #mapJson(ByteBuffer) on JSON}, as a single rewrite composed from all its mappers.
+ *
+ * @author Haroldo Macêdo
+ *
+ */
+final class MapperChain {
+  private static Logger logger = LogManager.getFormatterLogger(MapperChain.class.getName());
+
+  private static final MethodHandle MAP;
+  static {
+    try {
+      MAP = MethodHandles.lookup().findVirtual(EntityVersionMapper.class, "map", MethodType.methodType(Entity.class, Entity.class));
+    } catch (NoSuchMethodException | IllegalAccessException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  private final MappingRoute route;
+  private final EntityVersionMapper[] mappers;
+  private final long cost;
+  /**
+   * true if a mapper is a {@link com.versioning.map.StreamEntityVersionMapper StreamEntityVersionMapper}, 
+   * so {@link #mapStream(Stream) mapStream()} may not map each entity by itself.
+   */
+  private final boolean streamMapped;
+  /**
+   * Number of entities mapped by this chain, reported by {@link MapEntityVersion#logStatistics()} instead of logging each request.
+   */
+  private final LongAdder mapped = new LongAdder();
+  /**
+   * All mappers composed in a single call, created on the first {@link #mapFused(Entity) mapFused()}.<br>
+   * Volatile, so a thread that reads it also sees the composed handle whole. Concurrent first calls may compose it twice 
+   * with no harm, since both handles do the same.
+   */
+  private volatile MethodHandle fused;
+  /**
+   * Rewrite of all mappers composed, created on the first {@link #mapJson(ByteBuffer) mapJson()}.<br>
+   * Volatile for the same reason as {@link #fused}.
+   */
+  private volatile JsonRewriter jsonRewriter;
+
+  /**
+   * Create the chain of mappers.
+   *
+   * @param entityName - Name of the mapped entity.
+   * @param fromVersion - Initial version.
+   * @param toVersion - Final version.
+   * @param mappers - Mappers in the order they must be executed.
+   * @param cost - Sum of the {@link com.versioning.map.EntityVersionMap#cost() cost} of all mappers.
+   */
+  MapperChain(String entityName, int fromVersion, int toVersion, List<EntityVersionMapper> mappers, long cost) {
+    this.route = new MappingRoute(entityName, fromVersion, toVersion, mappers.size());
+    this.mappers = mappers.toArray(new EntityVersionMapper[mappers.size()]);
+    this.cost = cost;
+    boolean anyStreamMapper = false;
+    for (EntityVersionMapper evm : this.mappers)
+      anyStreamMapper |= evm instanceof StreamEntityVersionMapper;
+    this.streamMapped = anyStreamMapper;
+  }
+
+  /**
+   * Execute all mappers of this chain.
+   *
+   * @param entity - Entity in the initial version of the chain.
+   * @return Entity mapped to the final version of the chain.
+   */
+  Entity map(Entity entity) {
+    mapped.increment();
+    boolean debug = logger.isDebugEnabled();
+    Entity entityReturn = entity;
+    for (EntityVersionMapper evm : mappers) {
+      if (debug)
+        logger.debug(" - %s", evm.getClass().getName());
+      entityReturn = evm.map(entityReturn);
+    }
+
+    return entityReturn;
+  }
+
+  /**
+   * Execute all mappers of this chain on many entities.<br>
+   * Each mapper maps all entities before the next mapper starts, and 
+   * {@link com.versioning.map.BatchEntityVersionMapper BatchEntityVersionMapper} objects receive all entities at once.
+   *
+   * @param entities - Entities in the initial version of the chain, replaced by the entities in the final version.
+   */
+  void mapAll(Entity[] entities) {
+    mapped.add(entities.length);
+    boolean debug = logger.isDebugEnabled();
+    for (EntityVersionMapper evm : mappers) {
+      if (debug)
+        logger.debug(" - %s (%d entities)", evm.getClass().getName(), entities.length);
+      if (evm instanceof BatchEntityVersionMapper) {
+        ((BatchEntityVersionMapper) evm).mapAll(entities);
+      } else {
+        for (int i = 0; i < entities.length; i++)
+          entities[i] = evm.map(entities[i]);
+      }
+    }
+  }
+
+  /**
+   * Execute all mappers of this chain many times with the same entity, so the mappers are loaded and compiled
+   * before the first request. The entity is not counted as mapped.
+   *
+   * @param entity - Sample entity in the initial version of the chain.
+   * @param iterations - Number of executions.
+   * @param fusedChain - true to also execute the chain as a single composed call.
+   */
+  void warmUp(Entity entity, int iterations, boolean fusedChain) {
+    for (int i = 0; i < iterations; i++) {
+      Entity entityReturn = entity;
+      for (EntityVersionMapper evm : mappers)
+        entityReturn = evm.map(entityReturn);
+    }
+
+    if (fusedChain) {
+      MethodHandle mapHandle = fused();
+      for (int i = 0; i < iterations; i++)
+        invoke(mapHandle, entity);
+    }
+  }
+
+  /**
+   * Add all mappers of this chain to a stream of entities.<br>
+   * Nothing is mapped until the returned stream is consumed, then each entity goes through all mappers
+   * before the next one is read. {@link com.versioning.map.StreamEntityVersionMapper StreamEntityVersionMapper} 
+   * objects receive the stream itself.
+   *
+   * @param entities - Stream of entities in the initial version of the chain.
+   * @return Lazy stream of the entities in the final version of the chain.
+   */
+  Stream<Entity> mapStream(Stream<Entity> entities) {
+    Stream<Entity> stream = entities.peek(entity -> mapped.increment());
+    for (EntityVersionMapper evm : mappers) {
+      if (evm instanceof StreamEntityVersionMapper)
+        stream = ((StreamEntityVersionMapper) evm).mapStream(stream);
+      else
+        stream = stream.map(evm::map);
+    }
+
+    return stream;
+  }
+
+  /**
+   * Execute all mappers of this chain as a single composed call.<br>
+   * The result of each mapper is passed directly to the next one, with no loop over the mappers.
+   * The handle is read from a field, so the JIT doesn't inline it into the caller, but the composed handle is compiled
+   * as a single unit with each mapper bound as a constant, so the call of each mapper is not a megamorphic interface call
+   * shared by all chains. Measured by {@code ExecuteBenchmark} of module {@code benchmarks}.
+   *
+   * @param entity - Entity in the initial version of the chain.
+   * @return Entity mapped to the final version of the chain.
+   */
+  Entity mapFused(Entity entity) {
+    mapped.increment();
+    return invoke(fused(), entity);
+  }
+
+  /**
+   * @return All mappers composed in a single method handle, composed on the first call.
+   */
+  private MethodHandle fused() {
+    MethodHandle mapHandle = fused;
+    if (mapHandle == null) {
+      mapHandle = fuse();
+      fused = mapHandle;
+    }
+
+    return mapHandle;
+  }
+
+  private static Entity invoke(MethodHandle mapHandle, Entity entity) {
+    try {
+      return (Entity) mapHandle.invokeExact(entity);
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable e) {
+      //  EntityVersionMapper.map() doesn't throw checked exceptions.
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Execute all mappers of this chain on the JSON of an entity, with no entity objects created.<br>
+   * All mappers must be {@link com.versioning.map.StructuralEntityVersionMapper StructuralEntityVersionMapper} objects.
+   * Their {@link com.versioning.map.PropertyRewrite PropertyRewrite} objects are composed on the first call
+   * into a single rewrite of the JSON.
+   *
+   * @param json - UTF-8 JSON object of the entity in the initial version of the chain.
+   * @return New buffer with the JSON object in the final version of the chain.
+   * @throws VersioningConfigurationException - If a mapper is not structural or the JSON is malformed.
+   */
+  ByteBuffer mapJson(ByteBuffer json) throws VersioningConfigurationException {
+    JsonRewriter rewriter = jsonRewriter;
+    if (rewriter == null) {
+      PropertyRewrite propertyRewrite = null;
+      for (EntityVersionMapper evm : mappers) {
+        if (!(evm instanceof StructuralEntityVersionMapper))
+          throw new VersioningConfigurationException("Mapper " + evm.getClass().getName() + " of " + route 
+              + " doesn't declare its property rewrite. The entity can't be mapped as JSON.");
+        PropertyRewrite mapperRewrite = ((StructuralEntityVersionMapper) evm).propertyRewrite();
+        propertyRewrite = (propertyRewrite == null ? mapperRewrite : propertyRewrite.then(mapperRewrite));
+      }
+      logger.debug("JSON rewrite of %s: %s", route, propertyRewrite);
+      rewriter = new JsonRewriter(propertyRewrite);
+      jsonRewriter = rewriter;
+    }
+
+    mapped.increment();
+    return rewriter.rewrite(json);
+  }
+
+  /**
+   * Compose all mappers, each one filtering the return value of the previous one.
+   *
+   * @return Method handle of type {@code (Entity)Entity}.
+   */
+  private MethodHandle fuse() {
+    MethodHandle mapHandle = MethodHandles.identity(Entity.class);
+    for (EntityVersionMapper evm : mappers) {
+      logger.debug(" + %s", evm.getClass().getName());
+      mapHandle = MethodHandles.filterReturnValue(mapHandle, MAP.bindTo(evm));
+    }
+
+    return mapHandle;
+  }
+
+  /**
+   * @return Entity name and versions mapped by this chain.
+   */
+  MappingRoute route() {
+    return route;
+  }
+
+  /**
+   * @return Number of entities mapped by this chain.
+   */
+  long mapped() {
+    return mapped.sum();
+  }
+
+  /**
+   * @param index - Position of the mapper in the chain, from 0.
+   * @return The mapper.
+   */
+  EntityVersionMapper mapper(int index) {
+    return mappers[index];
+  }
+
+  /**
+   * @return Number of mappers executed by this chain.
+   */
+  int size() {
+    return mappers.length;
+  }
+
+  /**
+   * @return true if a mapper of this chain receives the stream itself in {@link #mapStream(Stream) mapStream()}.
+   */
+  boolean isStreamMapped() {
+    return streamMapped;
+  }
+
+  /**
+   * @return Sum of the cost of all mappers of this chain.
+   */
+  long cost() {
+    return cost;
+  }
+}
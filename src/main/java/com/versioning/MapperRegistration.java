@@ -0,0 +1,149 @@
+package com.versioning;
+
+import java.util.function.Supplier;
+
+import com.versioning.map.EntityVersionMap;
+import com.versioning.map.EntityVersionMapper;
+
+/**
+ * Entity name, versions and cost of a registered {@link com.versioning.map.EntityVersionMapper EntityVersionMapper}.<br>
+ * They are read either from the {@link com.versioning.map.EntityVersionMap EntityVersionMap} annotation
+ * or from a {@link com.versioning.map.DeclaredEntityVersionMapper DeclaredEntityVersionMapper}, 
+ * or declared by a {@link com.versioning.index.VersioningIndex VersioningIndex}.<br>
+ * The mapper may be registered with a supplier instead of an instance. Then it is created on the first 
+ * {@link #mapper()} call, when a route that uses it is resolved, so mappers never used are never created.
+ * When it is registered by class, the class is kept, so it can be read with no need to create the mapper.
+ * When it is read from a {@link RouteSnapshot}, only the class name is kept, and the class is loaded when the mapper is created.
+ *
+ * @author Haroldo Macêdo
+ *
+ */
+final class MapperRegistration {
+
+  private final String entityName;
+  private final int fromVersion;
+  private final int toVersion;
+  private final int cost;
+  /**
+   * Creates the mapper, or null after it is created.
+   */
+  private Supplier<? extends EntityVersionMapper> supplier;
+  private volatile EntityVersionMapper mapper;
+  /**
+   * Class of the mapper, or null if it is only known after the supplier creates the mapper.
+   */
+  private final Class<? extends EntityVersionMapper> mapperClass;
+  /**
+   * Name of the mapper class read from a {@link RouteSnapshot}, or null if the mapper was registered by the application.
+   */
+  private final String snapshotClassName;
+
+  MapperRegistration(String entityName, int fromVersion, int toVersion, int cost, EntityVersionMapper mapper) {
+    this.entityName = entityName;
+    this.fromVersion = fromVersion;
+    this.toVersion = toVersion;
+    this.cost = cost;
+    this.mapper = mapper;
+    this.mapperClass = mapper.getClass();
+    this.snapshotClassName = null;
+  }
+
+  MapperRegistration(String entityName, int fromVersion, int toVersion, int cost, Supplier<? extends EntityVersionMapper> supplier) {
+    this(entityName, fromVersion, toVersion, cost, (Class<? extends EntityVersionMapper>) null, supplier);
+  }
+
+  MapperRegistration(String entityName, int fromVersion, int toVersion, int cost, Class<? extends EntityVersionMapper> mapperClass, 
+      Supplier<? extends EntityVersionMapper> supplier) {
+    this.entityName = entityName;
+    this.fromVersion = fromVersion;
+    this.toVersion = toVersion;
+    this.cost = cost;
+    this.supplier = supplier;
+    this.mapperClass = mapperClass;
+    this.snapshotClassName = null;
+  }
+
+  MapperRegistration(String entityName, int fromVersion, int toVersion, int cost, String snapshotClassName, 
+      Supplier<? extends EntityVersionMapper> supplier) {
+    this.entityName = entityName;
+    this.fromVersion = fromVersion;
+    this.toVersion = toVersion;
+    this.cost = cost;
+    this.supplier = supplier;
+    this.mapperClass = null;
+    this.snapshotClassName = snapshotClassName;
+  }
+
+  MapperRegistration(EntityVersionMap versionMap, EntityVersionMapper mapper) {
+    this(versionMap.entityName(), versionMap.fromVersion(), versionMap.toVersion(), versionMap.cost(), mapper);
+  }
+
+  MapperRegistration(EntityVersionMap versionMap, Class<? extends EntityVersionMapper> mapperClass, Supplier<? extends EntityVersionMapper> supplier) {
+    this(versionMap.entityName(), versionMap.fromVersion(), versionMap.toVersion(), versionMap.cost(), mapperClass, supplier);
+  }
+
+  String entityName() {
+    return entityName;
+  }
+
+  int fromVersion() {
+    return fromVersion;
+  }
+
+  int toVersion() {
+    return toVersion;
+  }
+
+  int cost() {
+    return cost;
+  }
+
+  /**
+   * Return the mapper, creating it on the first call if it was registered with a supplier.<br>
+   * Concurrent first calls create it only once.
+   * 
+   * @return The mapper.
+   * @throws IllegalStateException - If the supplier returns null.
+   */
+  EntityVersionMapper mapper() {
+    EntityVersionMapper entityVersionMapper = mapper;
+    if (entityVersionMapper == null) {
+      synchronized (this) {
+        entityVersionMapper = mapper;
+        if (entityVersionMapper == null) {
+          entityVersionMapper = supplier.get();
+          if (entityVersionMapper == null)
+            throw new IllegalStateException("Supplier of the mapper of entity '" + entityName + "' from version " + fromVersion 
+                + " to version " + toVersion + " returned null.");
+          mapper = entityVersionMapper;
+          supplier = null;
+        }
+      }
+    }
+
+    return entityVersionMapper;
+  }
+
+  /**
+   * Return the class of the mapper, creating the mapper only if it was registered with a supplier and its class is unknown.
+   * 
+   * @return The mapper class.
+   */
+  Class<? extends EntityVersionMapper> mapperClass() {
+    return mapperClass != null ? mapperClass : mapper().getClass();
+  }
+
+  /**
+   * @return Name of the mapper class read from a {@link RouteSnapshot}, or null if the mapper was registered by the application.
+   */
+  String snapshotClassName() {
+    return snapshotClassName;
+  }
+
+  /**
+   * @return true if the mapper was already created.
+   */
+  boolean isCreated() {
+    return mapper != null;
+  }
+}
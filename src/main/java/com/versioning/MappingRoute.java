@@ -0,0 +1,68 @@
+package com.versioning;
+
+/**
+ * Identifies a resolved mapping: the entity name, the initial and final versions and 
+ * the number of {@link com.versioning.map.EntityVersionMapper EntityVersionMapper} executed.<br>
+ * The same object is reported to the {@link VersioningListener} for every entity mapped by the same route.
+ *
+ * @author Haroldo Macêdo
+ *
+ */
+public final class MappingRoute {
+
+  private final String entityName;
+  private final int fromVersion;
+  private final int toVersion;
+  private final int hops;
+  private final int hash;
+
+  MappingRoute(String entityName, int fromVersion, int toVersion, int hops) {
+    this.entityName = entityName;
+    this.fromVersion = fromVersion;
+    this.toVersion = toVersion;
+    this.hops = hops;
+    this.hash = (entityName.hashCode() * 31 + fromVersion) * 31 + toVersion;
+  }
+
+  public String getEntityName() {
+    return entityName;
+  }
+
+  public int getFromVersion() {
+    return fromVersion;
+  }
+
+  public int getToVersion() {
+    return toVersion;
+  }
+
+  /**
+   * @return Number of mappers executed to map from {@link #getFromVersion()} to {@link #getToVersion()}.
+   */
+  public int getHops() {
+    return hops;
+  }
+
+  @Override
+  public int hashCode() {
+    return hash;
+  }
+
+  /**
+   * Routes are equal when they map the same entity between the same versions, even if their mappers differ.
+   */
+  @Override
+  public boolean equals(Object obj) {
+    if (!(obj instanceof MappingRoute))
+      return false;
+
+    MappingRoute route = (MappingRoute) obj;
+    return route.hash == this.hash && route.fromVersion == this.fromVersion && route.toVersion == this.toVersion
+        && route.entityName.equals(this.entityName);
+  }
+
+  @Override
+  public String toString() {
+    return entityName + " v" + fromVersion + "->v" + toVersion;
+  }
+}
@@ -0,0 +1,351 @@
+package com.versioning;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import com.versioning.entity.Entity;
+import com.versioning.entity.EntityDescriptor;
+
+/**
+ * Maps the nested entities of an {@link com.versioning.entity.Entity Entity}, such as a list of items of an order,
+ * to the version used by the entity being mapped.<br>
+ * Lists are found and mapped by the framework after the mappers of the parent entity run. A nested list is a public field,
+ * or a property with a public getter and setter, of type {@code List} or {@code Collection} of an entity class with an 
+ * {@link com.versioning.entity.EntityVersion EntityVersion}, such as {@code List<ItemV3>}. They are found once for each class.
+ * So the mapper of the parent may just copy the list of the previous version:
+ * <pre>
+ * orderV2.setItems(orderV1.getItems());
+ * </pre>
+ * Lists of other types are mapped by a call of the mapper of the parent entity:
+ * <pre>
+ * orderV2.setItems(NestedEntityMapping.map(orderV1.getItems(), ItemV3.class));
+ * </pre>
+ * Each nested entity is mapped from the version of its own {@link com.versioning.entity.EntityVersion EntityVersion}.
+ * Lists with at least {@link #setParallelThreshold(int) parallelThreshold} entities are mapped in parallel,
+ * in the common {@link java.util.concurrent.ForkJoinPool ForkJoinPool}, and the order of the list is kept.<br>
+ * A huge entity, such as a report export, may keep its nested entities as a lazy {@link Stream}, or a {@link java.util.Spliterator Spliterator}
+ * of child records, instead of a list. Then its mappers call {@link #mapStream(Stream, Class) mapStream()}, which only adds a stage
+ * to the stream:
+ * <pre>
+ * reportV2.setRows(NestedEntityMapping.mapStream(reportV1.getRows(), RowV2.class));
+ * </pre>
+ * So the request and response mapping of the entity doesn't read its nested entities. They flow through all versions one at a time
+ * when the executer, or the caller of the response, reads the stream, and no version of the whole collection is held in memory.
+ *
+ * @author Haroldo Macêdo
+ *
+ */
+public final class NestedEntityMapping {
+
+  private static volatile int parallelThreshold = 1024;
+
+  /**
+   * Nested entity lists of each entity class, found on the first use of the class. Most classes have none.
+   */
+  private static final ClassValue<NestedList[]> nestedLists = new ClassValue<NestedList[]>() {
+    @Override
+    protected NestedList[] computeValue(Class<?> entityClass) {
+      return findNestedLists(entityClass);
+    }
+  };
+
+  private NestedEntityMapping() {
+  }
+
+  /**
+   * Set the minimum number of nested entities mapped in parallel. Default is 1024.
+   *
+   * @param threshold - Minimum size of the list, or {@link Integer#MAX_VALUE} to never map in parallel.
+   */
+  public static void setParallelThreshold(int threshold) {
+    parallelThreshold = threshold;
+  }
+
+  /**
+   * Map each nested entity of a list to the version of {@code toEntityClass}.<br>
+   * As it is called inside {@link com.versioning.map.EntityVersionMapper#map(Entity) map()}, 
+   * errors are thrown as {@link UncheckedVersioningException}.
+   *
+   * @param entities - Nested entities, of any version of the same entity.
+   * @param toEntityClass - Entity class of the final version.
+   * @return New list with the mapped entities, in the same order.
+   */
+  public static <T extends Entity> List<T> map(List<? extends Entity> entities, Class<T> toEntityClass) {
+    return map(entities, toEntityClass, VersioningContext.global());
+  }
+
+  /**
+   * Map each nested entity of a list to the version of {@code toEntityClass}, with the mappers of a {@link VersioningContext}.<br>
+   * Used by mappers registered in a frozen context, which keep the context they are registered in.
+   *
+   * @param entities - Nested entities, of any version of the same entity.
+   * @param toEntityClass - Entity class of the final version.
+   * @param context - Context of the mappers of the nested entities.
+   * @return New list with the mapped entities, in the same order.
+   */
+  public static <T extends Entity> List<T> map(List<? extends Entity> entities, Class<T> toEntityClass, VersioningContext context) {
+    return map(entities, toEntityClass, context.mappings());
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T extends Entity> List<T> map(Collection<? extends Entity> entities, Class<T> toEntityClass, MapEntityVersion mappings) {
+    Entity[] nested = entities.toArray(new Entity[entities.size()]);
+    MapperChain[] mapperChains = new MapperChain[nested.length];
+    try {
+      EntityDescriptor toVersion = descriptor(toEntityClass);
+      //  Entities of the same class share the chain.
+      Class<?> entityClass = null;
+      MapperChain mapperChain = null;
+      for (int i = 0; i < nested.length; i++) {
+        if (nested[i] != null && nested[i].getClass() != entityClass) {
+          entityClass = nested[i].getClass();
+          mapperChain = getMapperChain(mappings, descriptor(entityClass), toVersion);
+        }
+        mapperChains[i] = mapperChain;
+      }
+    } catch (VersioningConfigurationException e) {
+      throw new UncheckedVersioningException(e);
+    }
+
+    if (nested.length >= parallelThreshold) {
+      IntStream.range(0, nested.length).parallel().forEach(i -> nested[i] = map(nested[i], mapperChains[i], mappings));
+    } else {
+      for (int i = 0; i < nested.length; i++)
+        nested[i] = map(nested[i], mapperChains[i], mappings);
+    }
+
+    return (List<T>) Arrays.asList(nested);
+  }
+
+  /**
+   * Map each nested entity of a lazy stream to the version of {@code toEntityClass}, as the returned stream is consumed.<br>
+   * Nothing is read from the stream before it returns. Errors found while the stream is consumed are thrown as 
+   * {@link UncheckedVersioningException}.
+   *
+   * @param entities - Nested entities, of any version of the same entity. It may be created from a {@link java.util.Spliterator Spliterator}
+   * by {@link java.util.stream.StreamSupport#stream(java.util.Spliterator, boolean) StreamSupport.stream()}.
+   * @param toEntityClass - Entity class of the final version.
+   * @return Lazy stream of the mapped entities, in the same order.
+   */
+  public static <T extends Entity> Stream<T> mapStream(Stream<? extends Entity> entities, Class<T> toEntityClass) {
+    return mapStream(entities, toEntityClass, VersioningContext.global());
+  }
+
+  /**
+   * Map each nested entity of a lazy stream to the version of {@code toEntityClass}, with the mappers of a {@link VersioningContext},
+   * as the returned stream is consumed.
+   *
+   * @param entities - Nested entities, of any version of the same entity.
+   * @param toEntityClass - Entity class of the final version.
+   * @param context - Context of the mappers of the nested entities.
+   * @return Lazy stream of the mapped entities, in the same order.
+   */
+  @SuppressWarnings("unchecked")
+  public static <T extends Entity> Stream<T> mapStream(Stream<? extends Entity> entities, Class<T> toEntityClass, VersioningContext context) {
+    MapEntityVersion mappings = context.mappings();
+    EntityDescriptor toVersion;
+    try {
+      toVersion = descriptor(toEntityClass);
+    } catch (VersioningConfigurationException e) {
+      throw new UncheckedVersioningException(e);
+    }
+
+    //  Entities of the same class share the chain. The pair is replaced as a whole, so a parallel stream reads a consistent one.
+    AtomicReference<ClassChain> lastChain = new AtomicReference<>();
+    return entities.map(entity -> {
+      if (entity == null)
+        return null;
+
+      ClassChain classChain = lastChain.get();
+      if (classChain == null || classChain.entityClass != entity.getClass()) {
+        try {
+          classChain = new ClassChain(entity.getClass(), getMapperChain(mappings, descriptor(entity.getClass()), toVersion));
+        } catch (VersioningConfigurationException e) {
+          throw new UncheckedVersioningException(e);
+        }
+        lastChain.lazySet(classChain);
+      }
+
+      return (T) map(entity, classChain.mapperChain, mappings);
+    });
+  }
+
+  /**
+   * Chain of the last class of nested entities mapped by {@link NestedEntityMapping#mapStream(Stream, Class, VersioningContext) mapStream()}.
+   */
+  private static final class ClassChain {
+    private final Class<?> entityClass;
+    private final MapperChain mapperChain;
+
+    private ClassChain(Class<?> entityClass, MapperChain mapperChain) {
+      this.entityClass = entityClass;
+      this.mapperChain = mapperChain;
+    }
+  }
+
+  /**
+   * Map a nested entity, and then its own nested lists.
+   */
+  private static Entity map(Entity entity, MapperChain mapperChain, MapEntityVersion mappings) {
+    if (mapperChain == null)
+      return entity;
+
+    Entity mapped = MapEntityVersion.map(entity, mapperChain);
+    mapNestedLists(mapped, mappings);
+    return mapped;
+  }
+
+  /**
+   * Map the nested lists of an entity just mapped, if their entities are not in the version of the list yet.<br>
+   * Called by {@link MapEntityVersion} after the mappers of the entity run. Lists already mapped by the mapper, 
+   * or with no nested entity of another class, are kept.
+   *
+   * @param entity - Entity in the final version of a chain, or null.
+   * @param mappings - Mappers of the nested entities.
+   */
+  static void mapNestedLists(Entity entity, MapEntityVersion mappings) {
+    if (entity == null)
+      return;
+
+    for (NestedList nestedList : nestedLists.get(entity.getClass())) {
+      Collection<? extends Entity> nested = nestedList.get(entity);
+      if (nested != null && !isMapped(nested, nestedList.entityClass))
+        nestedList.set(entity, map(nested, nestedList.entityClass, mappings));
+    }
+  }
+
+  private static boolean isMapped(Collection<? extends Entity> entities, Class<? extends Entity> entityClass) {
+    for (Entity entity : entities)
+      if (entity != null && entity.getClass() != entityClass)
+        return false;
+    return true;
+  }
+
+  /**
+   * Find the public fields and properties of an entity class that are lists of a versioned entity.
+   */
+  private static NestedList[] findNestedLists(Class<?> entityClass) {
+    Map<String, NestedList> found = new LinkedHashMap<>();
+    MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+    for (Field field : entityClass.getFields()) {
+      Class<? extends Entity> nestedClass = nestedEntityClass(field.getType(), field.getGenericType());
+      if (nestedClass == null || Modifier.isStatic(field.getModifiers()) || Modifier.isFinal(field.getModifiers()))
+        continue;
+      try {
+        found.put(field.getName(), new NestedList(nestedClass, lookup.unreflectGetter(field), lookup.unreflectSetter(field)));
+      } catch (IllegalAccessException e) {
+        //  Public field of a class that is not public, not mapped.
+      }
+    }
+
+    for (Method getter : entityClass.getMethods()) {
+      String name = getter.getName();
+      if (name.length() <= 3 || !name.startsWith("get") || getter.getParameterCount() != 0 || Modifier.isStatic(getter.getModifiers()))
+        continue;
+      Class<? extends Entity> nestedClass = nestedEntityClass(getter.getReturnType(), getter.getGenericReturnType());
+      String property = Character.toLowerCase(name.charAt(3)) + name.substring(4);
+      if (nestedClass == null || found.containsKey(property))
+        continue;
+      try {
+        Method setter = entityClass.getMethod("set" + name.substring(3), getter.getReturnType());
+        found.put(property, new NestedList(nestedClass, lookup.unreflect(getter), lookup.unreflect(setter)));
+      } catch (NoSuchMethodException | IllegalAccessException e) {
+        //  Read only property, or of a class that is not public, not mapped.
+      }
+    }
+
+    return found.values().toArray(new NestedList[found.size()]);
+  }
+
+  /**
+   * @return The entity class of the elements of a {@code List} or {@code Collection} type, or null if it is not a versioned entity.
+   */
+  private static Class<? extends Entity> nestedEntityClass(Class<?> type, Type genericType) {
+    if ((type != List.class && type != Collection.class) || !(genericType instanceof ParameterizedType))
+      return null;
+
+    Type elementType = ((ParameterizedType) genericType).getActualTypeArguments()[0];
+    if (elementType instanceof WildcardType)
+      elementType = ((WildcardType) elementType).getUpperBounds()[0];
+    if (!(elementType instanceof Class) || !Entity.class.isAssignableFrom((Class<?>) elementType) || EntityDescriptor.of((Class<?>) elementType) == null)
+      return null;
+
+    return ((Class<?>) elementType).asSubclass(Entity.class);
+  }
+
+  /**
+   * Public field or property of an entity class with a list of nested entities.
+   */
+  private static final class NestedList {
+    private final Class<? extends Entity> entityClass;
+    /**
+     * Of type {@code (Entity)Collection}.
+     */
+    private final MethodHandle getter;
+    /**
+     * Of type {@code (Entity, Collection)void}.
+     */
+    private final MethodHandle setter;
+
+    private NestedList(Class<? extends Entity> entityClass, MethodHandle getter, MethodHandle setter) {
+      this.entityClass = entityClass;
+      this.getter = getter.asType(MethodType.methodType(Collection.class, Entity.class));
+      this.setter = setter.asType(MethodType.methodType(void.class, Entity.class, Collection.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Collection<? extends Entity> get(Entity entity) {
+      try {
+        return (Collection<? extends Entity>) getter.invokeExact(entity);
+      } catch (RuntimeException | Error e) {
+        throw e;
+      } catch (Throwable e) {
+        throw new IllegalStateException(e);
+      }
+    }
+
+    private void set(Entity entity, Collection<? extends Entity> nested) {
+      try {
+        setter.invokeExact(entity, nested);
+      } catch (RuntimeException | Error e) {
+        throw e;
+      } catch (Throwable e) {
+        throw new IllegalStateException(e);
+      }
+    }
+  }
+
+  private static EntityDescriptor descriptor(Class<?> entityClass) throws VersioningConfigurationException {
+    EntityDescriptor entityDescriptor = EntityDescriptor.of(entityClass);
+    if (entityDescriptor == null)
+      throw new VersioningConfigurationException("Annotation for class " + entityClass.getName() + " is not defined.");
+    return entityDescriptor;
+  }
+
+  /**
+   * @return The chain from one version to the other, or null if both are the same version.
+   */
+  private static MapperChain getMapperChain(MapEntityVersion mappings, EntityDescriptor fromVersion, EntityDescriptor toVersion) throws VersioningConfigurationException {
+    if (fromVersion.id() != toVersion.id())
+      throw new VersioningConfigurationException("Trying to map entity '" + fromVersion.name() + "' to entity '" + toVersion.name() + "'. Don't know how to map!");
+    if (fromVersion.version() == toVersion.version())
+      return null;
+
+    return mappings.getMapperChain(fromVersion.name(), fromVersion.version(), toVersion.version());
+  }
+}
@@ -0,0 +1,214 @@
+package com.versioning;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import com.versioning.entity.Entity;
+
+/**
+ * Cache of the entities returned by an executer, for executers that always return the same result for the same input,
+ * such as lookups.<br>
+ * The key is computed from the input entity after it is mapped to the executer version, so requests of all client versions
+ * share the same cached result. Only the response mapping, to the version of each client, is executed on a hit.
+ * Cached entities are passed to the response mappers many times, so these mappers must not change the entity they receive.
+ * Requests of the executer version receive the cached entity object itself, with no mapping and no copy, so callers must treat
+ * the returned entities as immutable.<br><br>
+ * The cache keeps at most {@code maxSize} entities, evicting the least recently used ones, and each entity expires
+ * {@code ttl} after it is cached. Entries are spread in segments locked separately, so the least recently used entry
+ * is evicted from the segment of the new key.
+ * <pre>
+ * ResponseCache cache = new ResponseCache(entity -> ((CustomerQueryV3) entity).getId(), 10000, 5, TimeUnit.MINUTES);
+ * VersionExecuter executer = VersionConfigure.get(new FindCustomerV3(), cache);
+ * </pre>
+ *
+ * @author Haroldo Macêdo
+ *
+ */
+public final class ResponseCache {
+
+  private static final int MAX_SEGMENTS = 16;
+  private static final int MIN_SEGMENT_SIZE = 64;
+
+  private final Function<? super Entity, ?> keyFunction;
+  private final long ttlNanos;
+  private final Segment[] segments;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  /**
+   * Create the cache.
+   *
+   * @param keyFunction - Returns the key of an input entity, in the executer input version.
+   *     The key must implement {@code equals()} and {@code hashCode()}. Entities with a null key are not cached.
+   * @param maxSize - Maximum number of cached entities.
+   * @param ttl - Time each entity is kept, or 0 to keep it until it is evicted.
+   * @param unit - Unit of {@code ttl}.
+   */
+  public ResponseCache(Function<? super Entity, ?> keyFunction, int maxSize, long ttl, TimeUnit unit) {
+    if (maxSize <= 0)
+      throw new IllegalArgumentException("Invalid cache size " + maxSize + ".");
+
+    this.keyFunction = keyFunction;
+    this.ttlNanos = unit.toNanos(ttl);
+    int segmentCount = 1;
+    while (segmentCount < MAX_SEGMENTS && maxSize / (segmentCount * 2) >= MIN_SEGMENT_SIZE)
+      segmentCount *= 2;
+
+    segments = new Segment[segmentCount];
+    for (int i = 0; i < segmentCount; i++)
+      segments[i] = new Segment((maxSize + segmentCount - 1) / segmentCount);
+  }
+
+  /**
+   * Cached entity and the time it expires.
+   */
+  private static final class CachedResponse {
+    private final Entity entity;
+    private final long expires;
+
+    private CachedResponse(Entity entity, long expires) {
+      this.entity = entity;
+      this.expires = expires;
+    }
+  }
+
+  /**
+   * Part of the cache, in access order, so the first entry is the least recently used.
+   */
+  @SuppressWarnings("serial")
+  private final class Segment extends LinkedHashMap<Object, CachedResponse> {
+    private final int maxSize;
+
+    private Segment(int maxSize) {
+      super(16, 0.75f, true);
+      this.maxSize = maxSize;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Object, CachedResponse> eldest) {
+      if (size() <= maxSize)
+        return false;
+
+      evictions.increment();
+      return true;
+    }
+  }
+
+  /**
+   * @param entity - Input entity, in the executer input version.
+   * @return Key of the entity, or null if it must not be cached.
+   */
+  Object key(Entity entity) {
+    return keyFunction.apply(entity);
+  }
+
+  /**
+   * @param key - Key returned by {@link #key(Entity)}.
+   * @return The cached entity, or null if it is not cached or it expired.
+   */
+  Entity get(Object key) {
+    if (key == null)
+      return null;
+
+    Segment segment = segment(key);
+    CachedResponse response;
+    synchronized (segment) {
+      response = segment.get(key);
+      if (response != null && ttlNanos > 0 && System.nanoTime() - response.expires > 0) {
+        segment.remove(key);
+        response = null;
+      }
+    }
+
+    if (response == null) {
+      misses.increment();
+      return null;
+    }
+
+    hits.increment();
+    return response.entity;
+  }
+
+  /**
+   * @param key - Key returned by {@link #key(Entity)}.
+   * @param entity - Entity returned by the executer.
+   */
+  void put(Object key, Entity entity) {
+    if (key == null || entity == null)
+      return;
+
+    CachedResponse response = new CachedResponse(entity, System.nanoTime() + ttlNanos);
+    Segment segment = segment(key);
+    synchronized (segment) {
+      segment.put(key, response);
+    }
+  }
+
+  private Segment segment(Object key) {
+    int hash = key.hashCode();
+    return segments[(hash ^ (hash >>> 16)) & (segments.length - 1)];
+  }
+
+  /**
+   * Remove all cached entities. The statistics are not changed.
+   */
+  public void clear() {
+    for (Segment segment : segments) {
+      synchronized (segment) {
+        segment.clear();
+      }
+    }
+  }
+
+  /**
+   * @return Number of cached entities, including the expired ones not removed yet.
+   */
+  public int size() {
+    int size = 0;
+    for (Segment segment : segments) {
+      synchronized (segment) {
+        size += segment.size();
+      }
+    }
+    return size;
+  }
+
+  /**
+   * @return Number of requests answered from the cache.
+   */
+  public long getHits() {
+    return hits.sum();
+  }
+
+  /**
+   * @return Number of requests that executed the executer.
+   */
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  /**
+   * @return Number of entities removed to keep the maximum size.
+   */
+  public long getEvictions() {
+    return evictions.sum();
+  }
+
+  /**
+   * @return Hits divided by all requests, or 0 with no requests.
+   */
+  public double getHitRatio() {
+    long hitCount = hits.sum();
+    long requests = hitCount + misses.sum();
+    return requests == 0 ? 0 : (double) hitCount / requests;
+  }
+
+  @Override
+  public String toString() {
+    return "ResponseCache [size=" + size() + ", hits=" + getHits() + ", misses=" + getMisses() + ", evictions=" + getEvictions() + "]";
+  }
+}
@@ -0,0 +1,343 @@
+package com.versioning;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.versioning.map.DeclaredEntityVersionMapper;
+import com.versioning.map.EntityVersionMapper;
+
+/**
+ * Binary copy of the registered mappers and of the routes already searched, so a restarted application
+ * doesn't load the mapper classes, read their annotations nor search the routes again.<br>
+ * For each entity name, the file has the class name, versions and cost of each mapper, and the mappers of each route,
+ * including the pairs of versions with no mapping. Entities are written by name, since their ids are given at runtime.<br>
+ * The file is read at once into a heap buffer, so no mapping of the file is kept open. Each mapper class is checked against
+ * the classpath by the CRC32 of its class file, read as a resource with no loading of the class. Any change of the class,
+ * including its annotation, changes the CRC32. If a class file is missing or changed, the file is not used,
+ * so the mappers must be registered again.<br>
+ * The mappers of each entity are written sorted by versions, so the {@link VersionPath} is built in a single pass when read.
+ * Mapper classes are loaded and the mappers created the first time a route uses them.
+ * <pre>
+ * header:  magic, format, body length, body CRC32
+ * body:    class count, for each class: name, class file CRC32
+ *          entity count, for each entity:
+ *            name, mapper count, for each mapper: class index, from version, to version, cost
+ *            route count, for each route: from version, to version, mapper count (-1 if no mapping), mapper indexes
+ * </pre>
+ * Numbers are big endian ints, and names are UTF-8 bytes after their length as a short.
+ *
+ * @author Haroldo Macêdo
+ *
+ */
+final class RouteSnapshot {
+  private static Logger logger = LogManager.getFormatterLogger(RouteSnapshot.class.getName());
+
+  private static final int MAGIC = 0x56525453;
+  private static final int FORMAT = 2;
+  private static final int HEADER_SIZE = 16;
+
+  private RouteSnapshot() {
+  }
+
+  /**
+   * Write the mappers and the routes already searched of some mappings.<br>
+   * The mappers registered by class, or read from a snapshot, are not created. Only the mappers registered with a supplier
+   * and not used yet are created, to find their class. The file is written to a temporary file first and then moved,
+   * so other processes never read a partial file.
+   * 
+   * @param mappings - Mappings to write.
+   * @param file - Snapshot file, replaced if it exists.
+   * @throws VersioningConfigurationException - If a mapper can't be created again from its class name, or its class file is not found.
+   * @throws IOException - If the file can't be written.
+   */
+  static void save(MapEntityVersion mappings, Path file) throws VersioningConfigurationException, IOException {
+    ClassLoader classLoader = classLoader();
+    Map<String, Integer> classIndexes = new LinkedHashMap<>();
+    List<Integer> classCrcs = new ArrayList<>();
+    ByteArrayOutputStream entitiesBytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(entitiesBytes);
+
+    Map<String, VersionPath> entities = new TreeMap<>(mappings.getEntities());
+    out.writeInt(entities.size());
+    for (Map.Entry<String, VersionPath> entity : entities.entrySet()) {
+      writeName(out, entity.getKey());
+
+      List<MapperRegistration> registrations = entity.getValue().getRegistrations();
+      Map<MapperRegistration, Integer> registrationIndexes = new IdentityHashMap<>();
+      out.writeInt(registrations.size());
+      for (MapperRegistration registration : registrations) {
+        String className = registration.snapshotClassName();
+        Class<?> mapperClass = null;
+        if (className == null) {
+          mapperClass = registration.mapperClass();
+          className = checkClass(mapperClass);
+        }
+        Integer classIndex = classIndexes.get(className);
+        if (classIndex == null) {
+          ClassLoader mapperClassLoader = (mapperClass == null || mapperClass.getClassLoader() == null ? classLoader : mapperClass.getClassLoader());
+          Integer classCrc = classFileCrc(mapperClassLoader, className);
+          if (classCrc == null)
+            throw new VersioningConfigurationException("Class file of mapper " + className + " not found. It can't be written to a snapshot.");
+          classIndex = classIndexes.size();
+          classIndexes.put(className, classIndex);
+          classCrcs.add(classCrc);
+        }
+
+        registrationIndexes.put(registration, registrationIndexes.size());
+        out.writeInt(classIndex);
+        out.writeInt(registration.fromVersion());
+        out.writeInt(registration.toVersion());
+        out.writeInt(registration.cost());
+      }
+
+      Map<Long, MapperRegistration[]> routeTable = entity.getValue().getRouteTable();
+      out.writeInt(routeTable.size());
+      for (Map.Entry<Long, MapperRegistration[]> route : routeTable.entrySet()) {
+        out.writeInt(RouteTable.fromVersion(route.getKey()));
+        out.writeInt(RouteTable.toVersion(route.getKey()));
+        MapperRegistration[] chain = route.getValue();
+        out.writeInt(chain.length == 0 ? -1 : chain.length);
+        for (MapperRegistration registration : chain)
+          out.writeInt(registrationIndexes.get(registration));
+      }
+    }
+    out.flush();
+
+    ByteArrayOutputStream bodyBytes = new ByteArrayOutputStream(entitiesBytes.size() + 64 * classIndexes.size());
+    DataOutputStream body = new DataOutputStream(bodyBytes);
+    body.writeInt(classIndexes.size());
+    for (Map.Entry<String, Integer> classIndex : classIndexes.entrySet()) {
+      writeName(body, classIndex.getKey());
+      body.writeInt(classCrcs.get(classIndex.getValue()));
+    }
+    entitiesBytes.writeTo(body);
+    body.flush();
+
+    CRC32 crc = new CRC32();
+    crc.update(bodyBytes.toByteArray());
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    header.putInt(MAGIC).putInt(FORMAT).putInt(bodyBytes.size()).putInt((int) crc.getValue());
+
+    Path parent = file.toAbsolutePath().getParent();
+    Path temporaryFile = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+    try {
+      try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+        header.flip();
+        while (header.hasRemaining())
+          channel.write(header);
+        ByteBuffer bodyBuffer = ByteBuffer.wrap(bodyBytes.toByteArray());
+        while (bodyBuffer.hasRemaining())
+          channel.write(bodyBuffer);
+        channel.force(true);
+      }
+      try {
+        Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      Files.deleteIfExists(temporaryFile);
+    }
+
+    logger.info("Snapshot of %d entities and %d mapper classes written to %s", entities.size(), classIndexes.size(), file);
+  }
+
+  /**
+   * Read the mappers and routes of a snapshot file.
+   * 
+   * @param file - Snapshot file.
+   * @return The mappers and preloaded routes of each entity name, or null if the file doesn't exist,
+   * is invalid or doesn't match the classpath. The reason is logged.
+   */
+  static Map<String, VersionPath> load(Path file) {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      //  Read instead of mapped, since a mapped file can't be replaced on some systems until the mapping is garbage collected.
+      long size = channel.size();
+      if (size > Integer.MAX_VALUE)
+        throw new VersioningConfigurationException("file is too large.");
+      ByteBuffer buffer = ByteBuffer.allocate((int) size);
+      while (buffer.hasRemaining() && channel.read(buffer) >= 0)
+        ;
+      buffer.flip();
+      return read(buffer);
+    } catch (NoSuchFileException e) {
+      logger.info("Snapshot %s not found.", file);
+    } catch (IOException | VersioningConfigurationException e) {
+      logger.warn("Snapshot %s not used: %s", file, e.getMessage());
+    } catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException | IllegalArgumentException e) {
+      logger.warn("Snapshot %s not used: file is truncated or corrupted.", file);
+    }
+
+    return null;
+  }
+
+  private static Map<String, VersionPath> read(ByteBuffer buffer) throws VersioningConfigurationException {
+    if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC)
+      throw new VersioningConfigurationException("not a snapshot file.");
+    int format = buffer.getInt();
+    if (format != FORMAT)
+      throw new VersioningConfigurationException("format " + format + " is not supported.");
+    int bodyLength = buffer.getInt();
+    int bodyCrc = buffer.getInt();
+    if (bodyLength != buffer.remaining())
+      throw new VersioningConfigurationException("file is truncated.");
+
+    CRC32 crc = new CRC32();
+    crc.update(buffer.duplicate());
+    if ((int) crc.getValue() != bodyCrc)
+      throw new VersioningConfigurationException("file is corrupted.");
+
+    ClassLoader classLoader = classLoader();
+    String[] classNames = new String[buffer.getInt()];
+    for (int i = 0; i < classNames.length; i++) {
+      classNames[i] = readName(buffer);
+      int classCrc = buffer.getInt();
+      Integer currentCrc;
+      try {
+        currentCrc = classFileCrc(classLoader, classNames[i]);
+      } catch (IOException e) {
+        throw new VersioningConfigurationException("class file of mapper " + classNames[i] + " can't be read.");
+      }
+      if (currentCrc == null)
+        throw new VersioningConfigurationException("mapper " + classNames[i] + " is not in the classpath.");
+      if (currentCrc != classCrc)
+        throw new VersioningConfigurationException("class of mapper " + classNames[i] + " changed.");
+    }
+
+    int entityCount = buffer.getInt();
+    Map<String, VersionPath> entities = new HashMap<>(entityCount * 2);
+    for (int i = 0; i < entityCount; i++) {
+      String entityName = readName(buffer);
+
+      MapperRegistration[] registrations = new MapperRegistration[buffer.getInt()];
+      for (int j = 0; j < registrations.length; j++) {
+        String className = classNames[buffer.getInt()];
+        int fromVersion = buffer.getInt();
+        int toVersion = buffer.getInt();
+        int cost = buffer.getInt();
+        if (fromVersion <= 0 || toVersion <= 0 || (j > 0 && RouteTable.key(fromVersion, toVersion) 
+            <= RouteTable.key(registrations[j - 1].fromVersion(), registrations[j - 1].toVersion())))
+          throw new VersioningConfigurationException("mappers of entity '" + entityName + "' are not sorted.");
+
+        registrations[j] = new MapperRegistration(entityName, fromVersion, toVersion, cost, className, 
+            () -> newMapper(classLoader, className));
+      }
+      VersionPath versionPath = new VersionPath(entityName, registrations);
+
+      int routeCount = buffer.getInt();
+      for (int j = 0; j < routeCount; j++) {
+        int fromVersion = buffer.getInt();
+        int toVersion = buffer.getInt();
+        int hops = buffer.getInt();
+        MapperRegistration[] chain = new MapperRegistration[Math.max(hops, 0)];
+        for (int k = 0; k < chain.length; k++)
+          chain[k] = registrations[buffer.getInt()];
+        versionPath.preload(fromVersion, toVersion, chain);
+      }
+
+      entities.put(entityName, versionPath);
+    }
+
+    return entities;
+  }
+
+  /**
+   * Load the class of a mapper read from a snapshot and create the mapper, the first time a route uses it.
+   * 
+   * @throws IllegalStateException - If the class can't be loaded or the mapper can't be created.
+   */
+  private static EntityVersionMapper newMapper(ClassLoader classLoader, String className) {
+    try {
+      return MapEntityVersion.newMapper(constructor(Class.forName(className, true, classLoader)));
+    } catch (ClassNotFoundException | LinkageError | VersioningConfigurationException e) {
+      throw new IllegalStateException("Can't create mapper " + className + " of a snapshot: " + e, e);
+    }
+  }
+
+  private static ClassLoader classLoader() {
+    ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+    return classLoader != null ? classLoader : RouteSnapshot.class.getClassLoader();
+  }
+
+  /**
+   * Compute the CRC32 of the class file of a mapper, read as a resource, so the class is not loaded.
+   * 
+   * @return The CRC32, or null if the class file is not found.
+   */
+  private static Integer classFileCrc(ClassLoader classLoader, String className) throws IOException {
+    try (InputStream in = classLoader.getResourceAsStream(className.replace('.', '/') + ".class")) {
+      if (in == null)
+        return null;
+
+      CRC32 crc = new CRC32();
+      byte[] bytes = new byte[8192];
+      for (int count; (count = in.read(bytes)) >= 0; )
+        crc.update(bytes, 0, count);
+      return (int) crc.getValue();
+    }
+  }
+
+  /**
+   * Check that a mapper can be created again from its class name.
+   * 
+   * @return The class name.
+   */
+  private static String checkClass(Class<?> mapperClass) throws VersioningConfigurationException {
+    if (mapperClass.isAnonymousClass() || mapperClass.isSynthetic())
+      throw new VersioningConfigurationException("Mapper " + mapperClass.getName() + " has no name. It can't be written to a snapshot.");
+    constructor(mapperClass);
+
+    return mapperClass.getName();
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Constructor<? extends EntityVersionMapper> constructor(Class<?> mapperClass) throws VersioningConfigurationException {
+    if (!EntityVersionMapper.class.isAssignableFrom(mapperClass) || DeclaredEntityVersionMapper.class.isAssignableFrom(mapperClass))
+      throw new VersioningConfigurationException("Mapper " + mapperClass.getName() + " declares its versions in its objects. It can't be written to a snapshot.");
+    try {
+      if (Modifier.isPublic(mapperClass.getModifiers()) && !Modifier.isAbstract(mapperClass.getModifiers()))
+        return (Constructor<? extends EntityVersionMapper>) mapperClass.getConstructor();
+    } catch (NoSuchMethodException e) {
+      //  Reported below.
+    }
+
+    throw new VersioningConfigurationException("Mapper " + mapperClass.getName() + " is not a public class with a public constructor with no parameters.");
+  }
+
+  private static void writeName(DataOutputStream out, String name) throws IOException {
+    byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+    out.writeShort(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readName(ByteBuffer buffer) {
+    byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
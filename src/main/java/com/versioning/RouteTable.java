@@ -0,0 +1,155 @@
+package com.versioning;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Table of values indexed by a pair of versions, read on every request with no lock and no allocation.<br>
+ * The pair is packed in a {@code long} by {@link #key(int, int) key()}, so no {@link Long} is created to look it up,
+ * and the table is an open addressing hash table of immutable entries. Values are only added, never replaced nor removed,
+ * since each one is the result of resolving its pair once, such as a {@link MapperChain} or the executer of a dispatcher.<br>
+ * Additions are synchronized and each entry is published by a volatile write. A reader that doesn't find an entry
+ * added at the same time, or an entry moved by a resize, gets null and resolves the pair again, as on a first lookup,
+ * and then calls {@link #putIfAbsent(long, Object) putIfAbsent()}, which returns the stored value.
+ *
+ * @param <V> - Type of the values.
+ *
+ * @author Haroldo Macêdo
+ *
+ */
+final class RouteTable<V> {
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  /**
+   * Receives each entry of a table.
+   */
+  interface Visitor<T> {
+    void visit(long key, T value);
+  }
+
+  private static final class Entry<V> {
+    private final long key;
+    private final V value;
+
+    private Entry(long key, V value) {
+      this.key = key;
+      this.value = value;
+    }
+  }
+
+  /**
+   * Slots of the entries. Its length is a power of two, and at most half of the slots are used.
+   */
+  private volatile AtomicReferenceArray<Entry<V>> slots = new AtomicReferenceArray<>(INITIAL_CAPACITY);
+  /**
+   * Number of entries, changed only inside synchronized methods.
+   */
+  private int size;
+
+  /**
+   * Pack a pair of versions, or of entity ids, in a key.
+   *
+   * @param fromVersion - Input version.
+   * @param toVersion - Output version.
+   * @return Unique number for the pair of versions.
+   */
+  static long key(int fromVersion, int toVersion) {
+    return ((long) fromVersion << 32) | (toVersion & 0xFFFFFFFFL);
+  }
+
+  /**
+   * @return Input version of a {@link #key(int, int) key()}.
+   */
+  static int fromVersion(long key) {
+    return (int) (key >>> 32);
+  }
+
+  /**
+   * @return Output version of a {@link #key(int, int) key()}.
+   */
+  static int toVersion(long key) {
+    return (int) key;
+  }
+
+  /**
+   * @param key - Pair of versions, from {@link #key(int, int) key()}.
+   * @return The value of the pair, or null if it was not added.
+   */
+  V get(long key) {
+    AtomicReferenceArray<Entry<V>> table = slots;
+    int mask = table.length() - 1;
+    for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+      Entry<V> entry = table.get(slot);
+      if (entry == null)
+        return null;
+      if (entry.key == key)
+        return entry.value;
+    }
+  }
+
+  /**
+   * Add the value of a pair, if it has no value yet.
+   *
+   * @param key - Pair of versions, from {@link #key(int, int) key()}.
+   * @param value - Value of the pair, not null.
+   * @return The value already stored, or null if {@code value} was added.
+   */
+  synchronized V putIfAbsent(long key, V value) {
+    V storedValue = get(key);
+    if (storedValue != null)
+      return storedValue;
+
+    AtomicReferenceArray<Entry<V>> table = slots;
+    if ((size + 1) * 2 > table.length()) {
+      AtomicReferenceArray<Entry<V>> newTable = new AtomicReferenceArray<>(table.length() * 2);
+      for (int slot = 0; slot < table.length(); slot++) {
+        Entry<V> entry = table.get(slot);
+        if (entry != null)
+          insert(newTable, entry);
+      }
+      slots = newTable;
+      table = newTable;
+    }
+
+    insert(table, new Entry<>(key, value));
+    size++;
+    return null;
+  }
+
+  /**
+   * @return Number of entries.
+   */
+  synchronized int size() {
+    return size;
+  }
+
+  /**
+   * Pass every entry to a visitor, in no specific order.
+   *
+   * @param visitor - Receives each key and value.
+   */
+  void forEach(Visitor<? super V> visitor) {
+    AtomicReferenceArray<Entry<V>> table = slots;
+    for (int slot = 0; slot < table.length(); slot++) {
+      Entry<V> entry = table.get(slot);
+      if (entry != null)
+        visitor.visit(entry.key, entry.value);
+    }
+  }
+
+  private static <V> void insert(AtomicReferenceArray<Entry<V>> table, Entry<V> entry) {
+    int mask = table.length() - 1;
+    int slot = hash(entry.key) & mask;
+    while (table.get(slot) != null)
+      slot = (slot + 1) & mask;
+    table.set(slot, entry);
+  }
+
+  /**
+   * Spread the bits of both versions, since most versions are small numbers.
+   */
+  private static int hash(long key) {
+    long hash = key * 0x9E3779B97F4A7C15L;
+    return (int) (hash ^ (hash >>> 32));
+  }
+}
@@ -0,0 +1,22 @@
+package com.versioning;
+
+/**
+ * Wraps a {@link VersioningConfigurationException} where checked exceptions can't be thrown, 
+ * such as inside the stream returned by {@link VersionExecuter#executeStream(java.util.stream.Stream, Class, Class) executeStream()}.
+ * 
+ * @author Haroldo Macêdo
+ *
+ */
+public class UncheckedVersioningException extends RuntimeException {
+
+  private static final long serialVersionUID = 4018325164297213384L;
+
+  public UncheckedVersioningException(VersioningConfigurationException cause) {
+    super(cause.getMessage(), cause);
+  }
+
+  @Override
+  public VersioningConfigurationException getCause() {
+    return (VersioningConfigurationException) super.getCause();
+  }
+}
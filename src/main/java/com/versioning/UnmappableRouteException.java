@@ -0,0 +1,52 @@
+package com.versioning;
+
+/**
+ * Thrown when an entity can't be mapped between two versions, such as when a client sends an unknown entity
+ * or a version that is not supported, an entity of another executer, a class with no annotation, or versions
+ * no executer of a dispatcher can be mapped to.<br>
+ * These errors are caused by the callers, not by the configuration, and may happen on every request of a
+ * misbehaving client. So this exception has no stack trace, and the same object is thrown for every request
+ * of a known entity and versions with no mapping. A single object is also thrown for all unknown entities, and one for all
+ * unknown versions of each entity, so arbitrary names and versions create no objects. The other rejections are kept for each
+ * pair of entities, each class or each pair of versions of a dispatcher, all limited by the classes of the application. Its message is logged at WARN level
+ * at most once every 10 seconds, with the entity and versions of the request and the number of requests rejected since the last message.
+ * 
+ * @author Haroldo Macêdo
+ *
+ */
+public class UnmappableRouteException extends VersioningConfigurationException {
+
+  private static final long serialVersionUID = -2271402606716834415L;
+
+  private final String entityName;
+  private final int fromVersion;
+  private final int toVersion;
+
+  UnmappableRouteException(String message, String entityName, int fromVersion, int toVersion) {
+    super(message, false);
+    this.entityName = entityName;
+    this.fromVersion = fromVersion;
+    this.toVersion = toVersion;
+  }
+
+  /**
+   * @return Name of the entity, or null if the entity is not mapped by any mapper or the class has no annotation.
+   */
+  public String getEntityName() {
+    return entityName;
+  }
+
+  /**
+   * @return Initial version of the mapping, or 0 if it is not known, such as when the entity or the version is not mapped by any mapper.
+   */
+  public int getFromVersion() {
+    return fromVersion;
+  }
+
+  /**
+   * @return Final version of the mapping, or 0 if it is not known, such as when the entity or the version is not mapped by any mapper.
+   */
+  public int getToVersion() {
+    return toVersion;
+  }
+}
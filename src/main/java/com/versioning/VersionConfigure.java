@@ -1,8 +1,23 @@
 package com.versioning;
 
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import com.versioning.entity.Entity;
+import com.versioning.index.VersioningIndex;
 import com.versioning.map.EntityVersionMapper;
 import com.versioning.model.ExecuteOperationVersion;
 
@@ -23,7 +38,271 @@ public abstract class VersionConfigure {
     logger.debug("Entity Version Mappers Registered");
   }  
 
+  /**
+   * Register entity mappers by their classes, with no mapper created now.<br>
+   * The entity name and versions are read from the {@link com.versioning.map.EntityVersionMap EntityVersionMap} annotation
+   * of each class. Each mapper is created once, by its public constructor with no parameters, the first time a route uses it.
+   * So applications with many mappers, of which only some are used, start faster and keep fewer objects.
+   * 
+   * @param mapperClasses - Classes of the mappers.
+   * @throws VersioningConfigurationException - If a class has no annotation, declares its versions in its objects or can't be created.
+   */
+  @SafeVarargs
+  public static void registerMapperClasses(Class<? extends EntityVersionMapper>... mapperClasses) throws VersioningConfigurationException {
+    logger.debug("Registering %d classes of Entity Version Mappers", mapperClasses.length);
+    List<Class<? extends EntityVersionMapper>> classes = new ArrayList<>(mapperClasses.length);
+    for (Class<? extends EntityVersionMapper> mapperClass : mapperClasses)
+      classes.add(mapperClass);
+    MapEntityVersion.registerMappers(MapEntityVersion.getRegistrations(classes));
+    logger.debug("Entity Version Mapper classes Registered");
+  }
+
+  /**
+   * Register an entity mapper that is created the first time a route uses it.
+   * <pre>
+   * VersionConfigure.registerMapper("customer", 1, 2, 1, CustomerV1ToV2::new);
+   * </pre>
+   * 
+   * @param entityName - Name of the entity the mapper transforms.
+   * @param fromVersion - Initial version of the entity.
+   * @param toVersion - Final version of the entity.
+   * @param cost - Relative cost of executing the mapper. See {@link com.versioning.map.EntityVersionMap#cost()}.
+   * @param mapperSupplier - Creates the mapper. It is called only once.
+   */
+  public static void registerMapper(String entityName, int fromVersion, int toVersion, int cost, Supplier<? extends EntityVersionMapper> mapperSupplier) {
+    MapEntityVersion.registerMappers(Collections.singletonList(new MapperRegistration(entityName, fromVersion, toVersion, cost, mapperSupplier)));
+  }
+
+  /**
+   * Register the entities, mappers and executers of every {@link com.versioning.index.VersioningIndex VersioningIndex}
+   * generated at compile time by {@code com.versioning.index.VersioningIndexProcessor}, of module {@code processor}, and
+   * found in the classpath, with no reading of annotations.
+   * 
+   * @return Number of indexes found.
+   */
+  public static int registerIndexedMappers() {
+    int indexes = 0;
+    IndexRegistry registry = new IndexRegistry();
+    for (VersioningIndex index : ServiceLoader.load(VersioningIndex.class)) {
+      logger.debug("Registering index %s", index.getClass().getName());
+      index.register(registry);
+      indexes++;
+    }
+
+    register(registry);
+    return indexes;
+  }
+
+  /**
+   * Register the entities, mappers and executers of some {@link com.versioning.index.VersioningIndex VersioningIndex} objects.<br>
+   * Used instead of {@link #registerIndexedMappers()} when the index classes are known, 
+   * such as in native images with no service loading configured.
+   * 
+   * @param indexes - The indexes, such as {@code new GeneratedVersioningIndex()}.
+   */
+  public static void registerIndex(VersioningIndex... indexes) {
+    IndexRegistry registry = new IndexRegistry();
+    for (VersioningIndex index : indexes)
+      index.register(registry);
+
+    register(registry);
+  }
+
+  private static void register(IndexRegistry registry) {
+    logger.debug("Registering %d indexed entities, %d mappers and %d executers", 
+        registry.entities(), registry.registrations().size(), registry.executers());
+    MapEntityVersion.registerMappers(registry.registrations());
+    logger.debug("Indexed Entity Version Mappers Registered");
+  }
+
+  /**
+   * Write the registered mappers and the routes already resolved to a snapshot file, read by {@link #loadSnapshot(Path)}
+   * when the application starts again.<br>
+   * Called after the mappers are registered and the routes are resolved by {@link #validate(ExecuteOperationVersion...) validate()}.
+   * All registered mappers must be public classes with a public constructor with no parameters. The mappers registered by class
+   * are not created, but the ones registered with a supplier and not used yet are created now, to find their class.
+   * 
+   * @param file - Snapshot file, replaced if it exists.
+   * @throws VersioningConfigurationException - If a mapper can't be created again from its class name,
+   * such as a {@link com.versioning.map.DeclaredEntityVersionMapper DeclaredEntityVersionMapper}.
+   * @throws IOException - If the file can't be written.
+   */
+  public static void saveSnapshot(Path file) throws VersioningConfigurationException, IOException {
+    RouteSnapshot.save(MapEntityVersion.global(), file);
+  }
+
+  /**
+   * Register the mappers and routes of a snapshot file written by {@link #saveSnapshot(Path)}, with no loading of the mapper classes,
+   * no reading of their annotations and no search of routes. Each mapper class file is only read to compare its CRC32 with the one
+   * in the snapshot. Mapper classes are loaded and the mappers created the first time a route uses them.<br>
+   * The snapshot is not used if the file is invalid or if the class file of a mapper is missing or changed, including a change
+   * of its annotation, so the mappers must be registered again:
+   * <pre>
+   * if (!VersionConfigure.loadSnapshot(snapshot)) {
+   *   VersionConfigure.registerIndexedMappers();
+   *   VersionConfigure.validate(executers);
+   *   VersionConfigure.saveSnapshot(snapshot);
+   * }
+   * </pre>
+   * 
+   * @param file - Snapshot file.
+   * @return true if the snapshot was registered, false if the file doesn't exist or can't be used. The reason is logged.
+   */
+  public static boolean loadSnapshot(Path file) {
+    Map<String, VersionPath> versionPaths = RouteSnapshot.load(file);
+    if (versionPaths == null)
+      return false;
+
+    MapEntityVersion.registerEntities(versionPaths);
+    logger.debug("Registered %d entities from snapshot %s", versionPaths.size(), file);
+    return true;
+  }
+
+  /**
+   * Create a frozen context with its own mappers, independent of the ones registered in this class.
+   * 
+   * @param entityVersionMappers - All mappers of the context.
+   * @return The context, whose mappers never change.
+   */
+  public static VersioningContext newContext(EntityVersionMapper... entityVersionMappers) {
+    logger.debug("Creating context with %d objects of Entity Version Mappers", entityVersionMappers.length);
+    return new VersioningContext(MapEntityVersion.empty().withMappers(MapEntityVersion.getRegistrations(entityVersionMappers)));
+  }
+
+  /**
+   * Create a frozen context with the mappers registered in this class up to now.<br>
+   * Called after all mappers are registered at startup, its executers are not changed by later registrations.
+   * 
+   * @return The context, whose mappers never change.
+   */
+  public static VersioningContext freeze() {
+    return new VersioningContext(MapEntityVersion.global());
+  }
+
+  /**
+   * Validate the registered mappers against the versions of executers, to be called at startup, after the mappers are registered.<br>
+   * For the input and output entities of each executer, resolves the route from and to every older version 
+   * of the entity, so the first requests find the routes ready, and reports the versions that can't be mapped.
+   * Each problem is also logged as a warning.
+   * 
+   * @param executers - Executers that will be used by the application.
+   * @return The resolved routes and the problems found.
+   */
+  public static VersioningReport validate(ExecuteOperationVersion... executers) {
+    return VersioningContext.global().validate(executers);
+  }
+
+  /**
+   * Execute, with sample entities, every route that starts at their versions, so the mappers are loaded
+   * and compiled before the first request.<br>
+   * The mappers must accept the samples without side effects. Warm-up mappings are not counted in the statistics.
+   * 
+   * @param iterations - Number of executions of each route, such as 10000 to reach the JIT compilation thresholds.
+   * @param samples - Sample entities, usually one for each version that clients send.
+   * @return Number of routes executed.
+   * @throws VersioningConfigurationException - If a sample entity has no {@link com.versioning.entity.EntityVersion EntityVersion} annotation.
+   */
+  public static int warmUp(int iterations, Entity... samples) throws VersioningConfigurationException {
+    return VersioningContext.global().warmUp(iterations, samples);
+  }
+
+  /**
+   * Log at INFO level the number of entities mapped for each entity and pair of versions.<br>
+   * The framework doesn't log each request at INFO level, call this method to report the mapping activity.
+   */
+  public static void logStatistics() {
+    VersioningContext.global().logStatistics();
+  }
+
+  /**
+   * Set the listener that receives the time spent on each mapping and operation execution,
+   * such as a {@link VersioningStatistics} object.<br>
+   * With no listener, the default, the framework doesn't read the clock.
+   * 
+   * @param listener - The listener, or null to stop measuring.
+   */
+  public static void setListener(VersioningListener listener) {
+    MapEntityVersion.setListener(listener);
+  }
+
+  /**
+   * Execute each chain of {@link com.versioning.map.EntityVersionMapper EntityVersionMapper} as a single composed call,
+   * instead of calling the mappers one by one.<br>
+   * Chains are composed on their first use. Disabled by default.
+   * 
+   * @param fused - true to compose the chains.
+   */
+  public static void setFusedChains(boolean fused) {
+    MapEntityVersion.setFusedChains(fused);
+  }
+
+  /**
+   * Return an executor that runs each task in a new virtual thread, 
+   * to be used by {@link VersionExecuter#executeAsync(com.versioning.entity.Entity, Class, java.util.concurrent.Executor, java.util.concurrent.Executor) executeAsync()}.<br>
+   * Virtual threads exist from Java 21 on. The framework is compiled for Java 8, so the executor is looked up when this method is called.
+   * 
+   * @return A new executor. It should be shut down when no longer used.
+   * @throws VersioningConfigurationException - If the running Java version has no virtual threads.
+   */
+  public static ExecutorService virtualThreadExecutor() throws VersioningConfigurationException {
+    try {
+      return (ExecutorService) MethodHandles.publicLookup()
+          .findStatic(Executors.class, "newVirtualThreadPerTaskExecutor", MethodType.methodType(ExecutorService.class))
+          .invokeExact();
+    } catch (NoSuchMethodException | IllegalAccessException e) {
+      throw new VersioningConfigurationException("Virtual threads are not available in Java " + System.getProperty("java.version") + ".");
+    } catch (Throwable e) {
+      throw new VersioningConfigurationException("Can't create the virtual thread executor: " + e);
+    }
+  }
+
   public static VersionExecuter get(ExecuteOperationVersion executer) throws VersioningConfigurationException {
-	    return new VersionOperationWrapper(executer);
+	    return VersioningContext.global().get(executer);
 	  }
+
+  /**
+   * Return the executer of an operation whose results are cached.<br>
+   * Requests of all client versions with the same input share the result, and only the response is mapped for each client.
+   * The returned entities are shared, not copied: a client of the executer version receives the cached entity object itself,
+   * so neither the response mappers nor the callers may change them.
+   * 
+   * @param executer - Executer that always returns the same result for the same input.
+   * @param responseCache - Cache of the results, which can be read for its hit and miss statistics.
+   * @return Executer that maps the versions, and executes {@code executer} only when the result is not cached.
+   * @throws VersioningConfigurationException - If the executer has no annotations.
+   */
+  public static VersionExecuter get(ExecuteOperationVersion executer, ResponseCache responseCache) throws VersioningConfigurationException {
+    return VersioningContext.global().get(executer, responseCache);
+  }
+
+  /**
+   * Return the executer of an operation whose concurrent executions with the same input are shared, and whose results may be cached.<br>
+   * Under bursts of identical requests, the operation is executed once for all requests received while it runs,
+   * and only the response is mapped for each client.
+   * The returned entities are shared, not copied: clients of the executer version receive the same entity object,
+   * so neither the response mappers nor the callers may change them.
+   * 
+   * @param executer - Executer that returns the same result for the same input while it runs.
+   * @param responseCache - Cache of the results, or null to not cache them.
+   * @param coalescer - Shares the executions, which can be read for its statistics.
+   * @return Executer that maps the versions, and executes {@code executer} once for the concurrent requests with the same input.
+   * @throws VersioningConfigurationException - If the executer has no annotations.
+   */
+  public static VersionExecuter get(ExecuteOperationVersion executer, ResponseCache responseCache, ExecutionCoalescer coalescer) 
+      throws VersioningConfigurationException {
+    return VersioningContext.global().get(executer, responseCache, coalescer);
+  }
+
+  /**
+   * Return the executer of an operation that has many versions running side by side.<br>
+   * Each request is executed by the version that needs the lowest total mapping cost, for the request and the response.
+   * Clients can send versions newer than some of the executers, as long as one executer is recent enough.
+   * 
+   * @param executers - All versions of the operation, with the same input and output entities.
+   * @return Executer that dispatches each request to one of {@code executers}.
+   * @throws VersioningConfigurationException - If an executer has no annotations or the executers have different entities.
+   */
+  public static VersionExecuter getDispatcher(ExecuteOperationVersion... executers) throws VersioningConfigurationException {
+    return VersioningContext.global().getDispatcher(executers);
+  }
 }
@@ -0,0 +1,231 @@
+package com.versioning;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.versioning.entity.Entity;
+import com.versioning.model.ExecuteOperationVersion;
+
+/**
+ * Executes an operation that has many versions running side by side.<br>
+ * Each request is executed by the version with the lowest total mapping cost: the cost of mapping the request
+ * entity to the executer input version, plus the cost of mapping the executer output to the version expected
+ * by the caller. Executers that would need a request mapped to a previous version, or a response mapped to
+ * a next version, are not used. Among executers with the same cost, the first one given is used.<br>
+ * The selected executer of each pair of input and output versions is kept in a dispatch table, filled for
+ * all known versions when the dispatcher is created and computed again when new mappers are registered in its
+ * {@link VersioningContext}.
+ *
+ * @author Haroldo Macêdo
+ *
+ */
+final class VersionDispatcher implements VersionExecuter {
+
+  private static Logger logger = LogManager.getFormatterLogger(VersionDispatcher.class.getName());
+
+  private final VersioningContext context;
+  private final VersionOperationWrapper[] executers;
+  private final String inputEntityName;
+  private final String outputEntityName;
+  private volatile DispatchTable dispatchTable;
+
+  /**
+   * Selected executer of each pair of input and output versions, computed from the mappers of one registration.
+   */
+  private static final class DispatchTable {
+    private final MapEntityVersion mappings;
+    private final RouteTable<VersionOperationWrapper> executers = new RouteTable<>();
+    /**
+     * Exception thrown for each pair of versions no executer can be mapped to. Dropped with the table when mappers are registered.
+     */
+    private final RouteTable<UnmappableRouteException> rejections = new RouteTable<>();
+
+    private DispatchTable(MapEntityVersion mappings) {
+      this.mappings = mappings;
+    }
+  }
+
+  /**
+   * Create the dispatcher and its dispatch table.
+   *
+   * @param context - Context of the mappers.
+   * @param executeOperationVersions - All versions of the operation.
+   * @throws VersioningConfigurationException - If no executer is given, if an executer has no annotations,
+   *     or if the executers have different input or output entities.
+   */
+  VersionDispatcher(VersioningContext context, ExecuteOperationVersion... executeOperationVersions) throws VersioningConfigurationException {
+    this.context = context;
+    if (executeOperationVersions.length == 0)
+      throw new VersioningConfigurationException("No executer to dispatch to.");
+
+    executers = new VersionOperationWrapper[executeOperationVersions.length];
+    for (int i = 0; i < executers.length; i++) {
+      executers[i] = new VersionOperationWrapper(context, executeOperationVersions[i], null, null);
+      if (executers[i].getExecuterInputVersion().id() != executers[0].getExecuterInputVersion().id()
+          || executers[i].getExecuterOutputVersion().id() != executers[0].getExecuterOutputVersion().id())
+        throw new VersioningConfigurationException("Executers " + executeOperationVersions[0].getClass().getName() + " and "
+            + executeOperationVersions[i].getClass().getName() + " have different input or output entities. Can't dispatch between them.");
+    }
+
+    inputEntityName = executers[0].getExecuterInputVersion().name();
+    outputEntityName = executers[0].getExecuterOutputVersion().name();
+    dispatchTable = buildDispatchTable(context.mappings());
+  }
+
+  @Override
+  public Entity execute(Entity entity, Class<? extends Entity> returnEntityClass) throws VersioningConfigurationException {
+    return getExecuter(entity.getClass(), returnEntityClass).execute(entity, returnEntityClass);
+  }
+
+  @Override
+  public CompletableFuture<Entity> executeAsync(Entity entity, Class<? extends Entity> returnEntityClass,
+      Executor mappingExecutor, Executor operationExecutor) {
+    VersionOperationWrapper executer;
+    try {
+      executer = getExecuter(entity.getClass(), returnEntityClass);
+    } catch (VersioningConfigurationException e) {
+      CompletableFuture<Entity> failed = new CompletableFuture<>();
+      failed.completeExceptionally(new CompletionException(e));
+      return failed;
+    }
+
+    return executer.executeAsync(entity, returnEntityClass, mappingExecutor, operationExecutor);
+  }
+
+  /**
+   * Execute all entities with one executer when they are all of the same class.
+   * Otherwise, each entity is dispatched on its own.
+   */
+  @Override
+  public List<Entity> executeAll(List<? extends Entity> entities, Class<? extends Entity> returnEntityClass) throws VersioningConfigurationException {
+    if (entities.isEmpty())
+      return Collections.emptyList();
+
+    Class<? extends Entity> inputEntityClass = entities.get(0).getClass();
+    for (Entity entity : entities)
+      if (entity.getClass() != inputEntityClass)
+        return VersionExecuter.super.executeAll(entities, returnEntityClass);
+
+    return getExecuter(inputEntityClass, returnEntityClass).executeAll(entities, returnEntityClass);
+  }
+
+  @Override
+  public Stream<Entity> executeStream(Stream<? extends Entity> entities, Class<? extends Entity> inputEntityClass,
+      Class<? extends Entity> returnEntityClass) throws VersioningConfigurationException {
+    return getExecuter(inputEntityClass, returnEntityClass).executeStream(entities, inputEntityClass, returnEntityClass);
+  }
+
+  /**
+   * Return the executer of a pair of input and output entity classes from the dispatch table.
+   *
+   * @param inputEntityClass - Entity class of the request.
+   * @param returnEntityClass - Entity class of the version expected by the caller.
+   * @return The executer with the lowest mapping cost.
+   * @throws VersioningConfigurationException - If the classes have no annotations or no executer can be mapped to them.
+   *     The same exception is thrown for all requests with the same versions, until new mappers are registered.
+   */
+  private VersionOperationWrapper getExecuter(Class<? extends Entity> inputEntityClass, Class<? extends Entity> returnEntityClass) throws VersioningConfigurationException {
+    int inputVersion = MapEntityVersion.getEntityDescriptor(inputEntityClass).version();
+    int outputVersion = MapEntityVersion.getEntityDescriptor(returnEntityClass).version();
+
+    DispatchTable table = dispatchTable;
+    MapEntityVersion mappings = context.mappings();
+    if (table.mappings != mappings) {
+      table = buildDispatchTable(mappings);
+      dispatchTable = table;
+    }
+
+    long key = RouteTable.key(inputVersion, outputVersion);
+    VersionOperationWrapper executer = table.executers.get(key);
+    if (executer == null) {
+      UnmappableRouteException rejection = table.rejections.get(key);
+      if (rejection != null)
+        throw MapEntityVersion.reject(rejection, inputEntityName, inputVersion, outputVersion);
+
+      //  Versions not known when the table was built.
+      executer = selectExecuter(mappings, inputVersion, outputVersion);
+      if (executer == null) {
+        rejection = new UnmappableRouteException("No executer can map entity '" + inputEntityName + "' from version " + inputVersion 
+            + " and return entity '" + outputEntityName + "' in version " + outputVersion, inputEntityName, inputVersion, outputVersion);
+        UnmappableRouteException storedRejection = table.rejections.putIfAbsent(key, rejection);
+        throw MapEntityVersion.reject(storedRejection != null ? storedRejection : rejection, inputEntityName, inputVersion, outputVersion);
+      }
+      table.executers.putIfAbsent(key, executer);
+    }
+
+    return executer;
+  }
+
+  /**
+   * Select the executer of every pair of known input and output versions.
+   *
+   * @param mappings - Mappers used to compute the cost of each executer.
+   * @return The new dispatch table.
+   */
+  private DispatchTable buildDispatchTable(MapEntityVersion mappings) {
+    DispatchTable table = new DispatchTable(mappings);
+
+    TreeSet<Integer> inputVersions = new TreeSet<>();
+    TreeSet<Integer> outputVersions = new TreeSet<>();
+    for (int version : mappings.getVersions(inputEntityName))
+      inputVersions.add(version);
+    for (int version : mappings.getVersions(outputEntityName))
+      outputVersions.add(version);
+    for (VersionOperationWrapper executer : executers) {
+      inputVersions.add(executer.getExecuterInputVersion().version());
+      outputVersions.add(executer.getExecuterOutputVersion().version());
+    }
+
+    for (int inputVersion : inputVersions) {
+      for (int outputVersion : outputVersions) {
+        VersionOperationWrapper executer = selectExecuter(mappings, inputVersion, outputVersion);
+        if (executer != null)
+          table.executers.putIfAbsent(RouteTable.key(inputVersion, outputVersion), executer);
+      }
+    }
+
+    logger.debug("Dispatch table of entity '%s' to entity '%s': %d executers, %d pairs of versions",
+        inputEntityName, outputEntityName, executers.length, table.executers.size());
+    return table;
+  }
+
+  /**
+   * Find the executer with the lowest total mapping cost for a pair of versions.
+   *
+   * @param mappings - Mappers used to compute the cost of each executer.
+   * @param inputVersion - Version of the request entity.
+   * @param outputVersion - Version of the entity expected by the caller.
+   * @return The executer, or null if no executer can be mapped to the versions.
+   */
+  private VersionOperationWrapper selectExecuter(MapEntityVersion mappings, int inputVersion, int outputVersion) {
+    VersionOperationWrapper selected = null;
+    long selectedCost = Long.MAX_VALUE;
+    for (VersionOperationWrapper executer : executers) {
+      int executerInputVersion = executer.getExecuterInputVersion().version();
+      int executerOutputVersion = executer.getExecuterOutputVersion().version();
+      //  Requests are not mapped to previous versions, responses are not mapped to next versions.
+      if (inputVersion > executerInputVersion || outputVersion > executerOutputVersion)
+        continue;
+
+      long requestCost = mappings.getMappingCost(inputEntityName, inputVersion, executerInputVersion);
+      long responseCost = mappings.getMappingCost(outputEntityName, executerOutputVersion, outputVersion);
+      if (requestCost < 0 || responseCost < 0)
+        continue;
+
+      if (requestCost + responseCost < selectedCost) {
+        selected = executer;
+        selectedCost = requestCost + responseCost;
+      }
+    }
+
+    return selected;
+  }
+}
@@ -1,5 +1,13 @@
 package com.versioning;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
 import com.versioning.entity.Entity;
 
 /**
@@ -9,4 +17,86 @@ import com.versioning.entity.Entity;
  */
 public interface VersionExecuter {
   public Entity execute(Entity entity, Class<? extends Entity> returnEntityClass) throws VersioningConfigurationException;
+
+  /**
+   * Execute the operation asynchronously, in the common {@link ForkJoinPool}.
+   * 
+   * @see #executeAsync(Entity, Class, Executor, Executor)
+   */
+  public default CompletableFuture<Entity> executeAsync(Entity entity, Class<? extends Entity> returnEntityClass) {
+    return executeAsync(entity, returnEntityClass, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Execute the operation asynchronously, mapping and executing in the same executor.
+   * 
+   * @see #executeAsync(Entity, Class, Executor, Executor)
+   */
+  public default CompletableFuture<Entity> executeAsync(Entity entity, Class<? extends Entity> returnEntityClass, Executor executor) {
+    return executeAsync(entity, returnEntityClass, executor, executor);
+  }
+
+  /**
+   * Execute the operation asynchronously.<br>
+   * The mapping of the input, the execution of the operation and the mapping of the output may run as separate stages,
+   * so the operation can run, for instance, in virtual threads ({@link VersionConfigure#virtualThreadExecutor()}) 
+   * while the mapping runs in a pool sized to the processors.
+   * Errors complete the returned future with a {@link CompletionException} whose cause is the original exception.<br>
+   * By default, calls {@link #execute(Entity, Class) execute()} in {@code operationExecutor}.
+   * 
+   * @param entity - Entity to execute.
+   * @param returnEntityClass - Entity class of the version expected by the caller.
+   * @param mappingExecutor - Executor of the input and output mappings.
+   * @param operationExecutor - Executor of the operation.
+   * @return Future completed with the result, in the version of {@code returnEntityClass}.
+   */
+  public default CompletableFuture<Entity> executeAsync(Entity entity, Class<? extends Entity> returnEntityClass, 
+      Executor mappingExecutor, Executor operationExecutor) {
+    return CompletableFuture.supplyAsync(() -> {
+      try {
+        return execute(entity, returnEntityClass);
+      } catch (VersioningConfigurationException e) {
+        throw new CompletionException(e);
+      }
+    }, operationExecutor);
+  }
+
+  /**
+   * Execute the operation for each entity of a list, returning the results in the same order.<br>
+   * By default, calls {@link #execute(Entity, Class) execute()} for each entity.
+   * 
+   * @param entities - Entities to execute, usually all of the same version.
+   * @param returnEntityClass - Entity class of the version expected by the caller.
+   * @return The result of each entity, in the version of {@code returnEntityClass}.
+   * @throws VersioningConfigurationException - If some configuration error is found, such as lack of annotations.
+   */
+  public default List<Entity> executeAll(List<? extends Entity> entities, Class<? extends Entity> returnEntityClass) throws VersioningConfigurationException {
+    List<Entity> entitiesRet = new ArrayList<>(entities.size());
+    for (Entity entity : entities)
+      entitiesRet.add(execute(entity, returnEntityClass));
+    return entitiesRet;
+  }
+
+  /**
+   * Execute the operation for each entity of a stream, as the returned stream is consumed.<br>
+   * Entities are read, mapped, executed and mapped back one at a time, so memory doesn't grow with the size of the stream.
+   * Errors found while the stream is consumed are thrown as {@link UncheckedVersioningException}.<br>
+   * By default, calls {@link #execute(Entity, Class) execute()} for each entity.
+   * 
+   * @param entities - Stream of entities to execute.
+   * @param inputEntityClass - Entity class of all entities of the stream.
+   * @param returnEntityClass - Entity class of the version expected by the caller.
+   * @return Lazy stream of the results, in the version of {@code returnEntityClass}.
+   * @throws VersioningConfigurationException - If some configuration error is found, such as lack of annotations.
+   */
+  public default Stream<Entity> executeStream(Stream<? extends Entity> entities, Class<? extends Entity> inputEntityClass, 
+      Class<? extends Entity> returnEntityClass) throws VersioningConfigurationException {
+    return entities.map(entity -> {
+      try {
+        return execute(entity, returnEntityClass);
+      } catch (VersioningConfigurationException e) {
+        throw new UncheckedVersioningException(e);
+      }
+    });
+  }
 }
@@ -2,12 +2,20 @@ package com.versioning;
 
 import java.lang.reflect.Method;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import com.versioning.entity.Entity;
-import com.versioning.entity.EntityVersion;
+import com.versioning.entity.EntityDescriptor;
+import com.versioning.model.BatchExecuteOperationVersion;
 import com.versioning.model.ExecuteOperationVersion;
 import com.versioning.model.ExecuteVersion;
 
@@ -23,8 +31,27 @@ class VersionOperationWrapper implements VersionExecuter {
 
   private static Logger logger = LogManager.getFormatterLogger(VersionOperationWrapper.class.getName());
   
-  private ExecuteVersion executerVersionAnnoations;
+  /**
+   * Input and output versions of the executer classes declared by a {@link com.versioning.index.VersioningIndex VersioningIndex},
+   * used instead of the annotations.
+   */
+  private static final ConcurrentMap<Class<?>, EntityDescriptor[]> indexedExecuters = new ConcurrentHashMap<>();
+
+  private EntityDescriptor executerInputVersion;
+  private EntityDescriptor executerOutputVersion;
   private ExecuteOperationVersion executeOperationVersion;
+  /**
+   * Context of the mappers used by this executer.
+   */
+  private final VersioningContext context;
+  /**
+   * Results of the executer, or null when they are not cached.
+   */
+  private ResponseCache responseCache;
+  /**
+   * Shares the executions of concurrent requests with the same input, or null when they are not shared.
+   */
+  private final ExecutionCoalescer coalescer;
 
   /**
    * Create the wrapper to execute the actual available version of the operation.
@@ -33,8 +60,53 @@ class VersionOperationWrapper implements VersionExecuter {
    * @param returnEntityClass
    */
   VersionOperationWrapper(ExecuteOperationVersion executeOperationVersion) throws VersioningConfigurationException {
+    this(VersioningContext.global(), executeOperationVersion, null, null);
+  }
+
+  /**
+   * Create the wrapper to execute the actual available version of the operation with the mappers of a context, 
+   * caching its results and sharing its concurrent executions.
+   * 
+   * @param context - Context of the mappers.
+   * @param executeOperationVersion
+   * @param responseCache - Cache of the results of the operation, or null to not cache them.
+   * @param coalescer - Shares the concurrent executions with the same input, or null to not share them.
+   */
+  VersionOperationWrapper(VersioningContext context, ExecuteOperationVersion executeOperationVersion, ResponseCache responseCache,
+      ExecutionCoalescer coalescer) throws VersioningConfigurationException {
+    this.context = context;
     this.executeOperationVersion = executeOperationVersion;
-    this.executerVersionAnnoations = getMethodAnnotations(executeOperationVersion.getClass());
+    this.responseCache = responseCache;
+    this.coalescer = coalescer;
+    EntityDescriptor[] indexedVersions = indexedExecuters.get(executeOperationVersion.getClass());
+    if (indexedVersions != null) {
+      this.executerInputVersion = indexedVersions[0];
+      this.executerOutputVersion = indexedVersions[1];
+      return;
+    }
+
+    ExecuteVersion executerVersionAnnoations = getMethodAnnotations(executeOperationVersion.getClass());
+    this.executerInputVersion = new EntityDescriptor(executerVersionAnnoations.inputEntity(), executerVersionAnnoations.inputVersion());
+    this.executerOutputVersion = new EntityDescriptor(executerVersionAnnoations.outputEntity(), executerVersionAnnoations.outputVersion());
+  }
+
+  /**
+   * Declare the input and output versions of an executer class, so its annotations are not read.
+   * 
+   * @param executerClass - Class of the executer.
+   * @param inputVersion - Version of the input entity.
+   * @param outputVersion - Version of the output entity.
+   */
+  static void index(Class<? extends ExecuteOperationVersion> executerClass, EntityDescriptor inputVersion, EntityDescriptor outputVersion) {
+    indexedExecuters.put(executerClass, new EntityDescriptor[] { inputVersion, outputVersion });
+  }
+
+  EntityDescriptor getExecuterInputVersion() {
+    return executerInputVersion;
+  }
+
+  EntityDescriptor getExecuterOutputVersion() {
+    return executerOutputVersion;
   }
 
   /**
@@ -47,26 +119,197 @@ class VersionOperationWrapper implements VersionExecuter {
   @Override
   public Entity execute(Entity entity, Class<? extends Entity> returnEntityClass) throws VersioningConfigurationException {
 
-    EntityVersion inputEntityVersionAnnotations = getClassAnnotations(entity.getClass());
-    EntityVersion outputEntityVersionAnnotations = getClassAnnotations(returnEntityClass);
+    EntityDescriptor inputEntityVersionAnnotations = getClassAnnotations(entity.getClass());
+    EntityDescriptor outputEntityVersionAnnotations = getClassAnnotations(returnEntityClass);
 
-    logger.debug("Executing %s: Input is entity %s v%d. Output is entity %s v%d", executeOperationVersion.getClass().getName(), 
-        inputEntityVersionAnnotations.name(), inputEntityVersionAnnotations.version(),
-        outputEntityVersionAnnotations.name(), outputEntityVersionAnnotations.version());
+    boolean debug = logger.isDebugEnabled();
+    if (debug)
+      logger.debug("Executing %s: Input is entity %s v%d. Output is entity %s v%d", executeOperationVersion.getClass().getName(), 
+          inputEntityVersionAnnotations.name(), inputEntityVersionAnnotations.version(),
+          outputEntityVersionAnnotations.name(), outputEntityVersionAnnotations.version());
     
     // Map Input
-    Entity entityIn = MapEntityVersion.mapRequest(entity, inputEntityVersionAnnotations, executerVersionAnnoations);
+    MapEntityVersion mappings = context.mappings();
+    Entity entityIn = mappings.mapRequest(entity, inputEntityVersionAnnotations, executerInputVersion);
 
     // Execute operation
-    Entity entityOut = executeOperationVersion.execute(entityIn);
+    Entity entityOut = executeOperation(entityIn);
 
     // Map Output
-    Entity entityRet = MapEntityVersion.mapResponse(entityOut, outputEntityVersionAnnotations, executerVersionAnnoations);
+    Entity entityRet = mappings.mapResponse(entityOut, outputEntityVersionAnnotations, executerOutputVersion);
 
-    logger.debug("Executed %s", executeOperationVersion.getClass().getName()); 
+    if (debug)
+      logger.debug("Executed %s", executeOperationVersion.getClass().getName());
     return entityRet;
   }
 
+  /**
+   * Execute the actual operation asynchronously, in three stages.<br>
+   * <ul><li>Maps the input object, in {@code mappingExecutor}.</li>
+   * <li>Executes the operation, in {@code operationExecutor}.</li>
+   * <li>Maps the operation output, in {@code mappingExecutor}.</li></ul>
+   * The annotations are read before returning, so the stages only map and execute.
+   */
+  @Override
+  public CompletableFuture<Entity> executeAsync(Entity entity, Class<? extends Entity> returnEntityClass, 
+      Executor mappingExecutor, Executor operationExecutor) {
+    EntityDescriptor inputEntityVersionAnnotations;
+    EntityDescriptor outputEntityVersionAnnotations;
+    try {
+      inputEntityVersionAnnotations = getClassAnnotations(entity.getClass());
+      outputEntityVersionAnnotations = getClassAnnotations(returnEntityClass);
+    } catch (VersioningConfigurationException e) {
+      CompletableFuture<Entity> failed = new CompletableFuture<>();
+      failed.completeExceptionally(new CompletionException(e));
+      return failed;
+    }
+
+    MapEntityVersion mappings = context.mappings();
+    return CompletableFuture
+        // Map Input
+        .supplyAsync(() -> {
+          try {
+            return mappings.mapRequest(entity, inputEntityVersionAnnotations, executerInputVersion);
+          } catch (VersioningConfigurationException e) {
+            throw new CompletionException(e);
+          }
+        }, mappingExecutor)
+        // Execute operation
+        .thenApplyAsync(entityIn -> {
+          try {
+            return executeOperation(entityIn);
+          } catch (VersioningConfigurationException e) {
+            throw new CompletionException(e);
+          }
+        }, operationExecutor)
+        // Map Output
+        .thenApplyAsync(entityOut -> {
+          try {
+            return mappings.mapResponse(entityOut, outputEntityVersionAnnotations, executerOutputVersion);
+          } catch (VersioningConfigurationException e) {
+            throw new CompletionException(e);
+          }
+        }, mappingExecutor);
+  }
+
+  /**
+   * Execute the actual operation for all entities of a list.<br>
+   * When all entities are of the same class, the input and output mappers are found once for the whole list, and 
+   * each mapper maps all entities before the next one. A {@link BatchExecuteOperationVersion} executer receives 
+   * all entities in a single call.
+   */
+  @Override
+  public List<Entity> executeAll(List<? extends Entity> entities, Class<? extends Entity> returnEntityClass) throws VersioningConfigurationException {
+    EntityDescriptor outputEntityVersionAnnotations = getClassAnnotations(returnEntityClass);
+    Entity[] batch = entities.toArray(new Entity[entities.size()]);
+    if (batch.length == 0)
+      return Arrays.asList(batch);
+
+    if (logger.isDebugEnabled())
+      logger.debug("Executing %s for %d entities", executeOperationVersion.getClass().getName(), batch.length);
+
+    // Map Input
+    MapEntityVersion mappings = context.mappings();
+    Class<? extends Entity> inputEntityClass = batch[0].getClass();
+    boolean sameClass = true;
+    for (int i = 1; i < batch.length && sameClass; i++)
+      sameClass = (batch[i].getClass() == inputEntityClass);
+    if (sameClass) {
+      mappings.mapRequestAll(batch, getClassAnnotations(inputEntityClass), executerInputVersion);
+    } else {
+      for (int i = 0; i < batch.length; i++)
+        batch[i] = mappings.mapRequest(batch[i], getClassAnnotations(batch[i].getClass()), executerInputVersion);
+    }
+
+    // Execute operation
+    Entity[] batchOut = new Entity[batch.length];
+    if (responseCache != null || coalescer != null) {
+      //  Each entity may be cached or shared, the executed ones are reported one by one.
+      for (int i = 0; i < batch.length; i++)
+        batchOut[i] = executeOperation(batch[i]);
+    } else {
+      VersioningListener listener = MapEntityVersion.getListener();
+      long start = (listener == null ? 0 : System.nanoTime());
+      if (executeOperationVersion instanceof BatchExecuteOperationVersion) {
+        batchOut = ((BatchExecuteOperationVersion) executeOperationVersion).executeAll(batch);
+        if (batchOut == null || batchOut.length != batch.length)
+          throw new VersioningConfigurationException("Executer " + executeOperationVersion.getClass().getName() + " returned " 
+              + (batchOut == null ? "no entities" : batchOut.length + " entities") + " for " + batch.length + " entities.");
+      } else {
+        for (int i = 0; i < batch.length; i++)
+          batchOut[i] = executeOperationVersion.execute(batch[i]);
+      }
+      if (listener != null)
+        listener.executedAll(executeOperationVersion.getClass(), batch.length, System.nanoTime() - start);
+    }
+
+    // Map Output
+    mappings.mapResponseAll(batchOut, outputEntityVersionAnnotations, executerOutputVersion);
+
+    return Arrays.asList(batchOut);
+  }
+
+  /**
+   * Execute the actual operation for each entity of a stream.<br>
+   * The annotations are read and the input and output mappers are found before returning. Then, as the returned 
+   * stream is consumed, each entity is mapped, executed and mapped back before the next one is read.
+   */
+  @Override
+  public Stream<Entity> executeStream(Stream<? extends Entity> entities, Class<? extends Entity> inputEntityClass, 
+      Class<? extends Entity> returnEntityClass) throws VersioningConfigurationException {
+    EntityDescriptor inputEntityVersionAnnotations = getClassAnnotations(inputEntityClass);
+    EntityDescriptor outputEntityVersionAnnotations = getClassAnnotations(returnEntityClass);
+
+    // Map Input
+    MapEntityVersion mappings = context.mappings();
+    Stream<Entity> entitiesIn = mappings.mapRequestStream(entities.map(entity -> entity), inputEntityVersionAnnotations, executerInputVersion);
+
+    // Execute operation
+    Stream<Entity> entitiesOut = entitiesIn.map(entity -> {
+      try {
+        return executeOperation(entity);
+      } catch (VersioningConfigurationException e) {
+        throw new UncheckedVersioningException(e);
+      }
+    });
+
+    // Map Output
+    return mappings.mapResponseStream(entitiesOut, outputEntityVersionAnnotations, executerOutputVersion);
+  }
+
+  /**
+   * Execute the operation, or return its result from the {@link ResponseCache} or from the same execution of 
+   * a concurrent request, reporting the time spent to the {@link VersioningListener}.
+   * 
+   * @param entityIn - Entity in the executer input version.
+   * @return Entity in the executer output version.
+   */
+  private Entity executeOperation(Entity entityIn) throws VersioningConfigurationException {
+    Object key = null;
+    if (responseCache != null) {
+      key = responseCache.key(entityIn);
+      Entity cachedOut = responseCache.get(key);
+      if (cachedOut != null)
+        return cachedOut;
+    }
+
+    Entity entityOut = (coalescer == null ? execute(entityIn) : coalescer.execute(coalescer.key(entityIn), () -> execute(entityIn)));
+
+    if (responseCache != null)
+      responseCache.put(key, entityOut);
+    return entityOut;
+  }
+
+  private Entity execute(Entity entityIn) throws VersioningConfigurationException {
+    VersioningListener listener = MapEntityVersion.getListener();
+    long start = (listener == null ? 0 : System.nanoTime());
+    Entity entityOut = executeOperationVersion.execute(entityIn);
+    if (listener != null)
+      listener.executed(executeOperationVersion.getClass(), System.nanoTime() - start);
+
+    return entityOut;
+  }
+
   /**
    * Return the annotations of the ExecuteOperationVersion class.
    * 
@@ -91,22 +334,13 @@ class VersionOperationWrapper implements VersionExecuter {
   }
 
   /**
-   * Return the annotations of the exec() method of an Entity class.
+   * Return the name and version of an Entity class.<br>
+   * The annotation is read once for each class by {@link EntityDescriptor#of(Class)}.
    * 
    * @param entity
    * @return
    */
-  private EntityVersion getClassAnnotations(Class<? extends Entity> entity) throws VersioningConfigurationException {
-    try {
-      EntityVersion entityVersionAnnotations = (EntityVersion) Arrays
-          .asList(entity.getAnnotations())
-          .stream()
-          .filter(p -> p instanceof EntityVersion)
-          .findFirst().get();
-
-      return entityVersionAnnotations;
-    } catch (Exception e) {
-      throw new VersioningConfigurationException("Annotation for class " + entity.getName() + " is not defined.");
-    }
+  private EntityDescriptor getClassAnnotations(Class<? extends Entity> entity) throws VersioningConfigurationException {
+    return MapEntityVersion.getEntityDescriptor(entity);
   }
 }
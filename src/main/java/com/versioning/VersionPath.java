@@ -1,7 +1,13 @@
 package com.versioning;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -12,9 +18,17 @@ import com.versioning.map.EntityVersionMapper;
 /**
  * Class used by {@link MapEntityVersion} to implement the mapping transformation.<br>
  * This class stores all registered version mappers for an entity name.
- * Method {@link #add(EntityVersionMapper, int, int) add()} stores each {@link com.versioning.map.EntityVersionMapper EntityVersionMapper}.<br>
+ * Method {@link #add(MapperRegistration) add()} stores the registration of each {@link com.versioning.map.EntityVersionMapper EntityVersionMapper}.<br>
  * It also generate the list of {@link com.versioning.map.EntityVersionMapper EntityVersionMapper} that
- * can be executed to transform an {@link com.versioning.Entity Entity} from a version to another one.
+ * can be executed to transform an {@link com.versioning.Entity Entity} from a version to another one.<br>
+ * The generated list is the one with the lowest total {@link com.versioning.map.EntityVersionMap#cost() cost}, 
+ * and the lowest number of mappers among the ones with the same cost.<br>
+ * Each resolved list is kept as a {@link MapperChain}, so the search runs only once for each pair of versions.<br>
+ * Mappers are kept as sorted version lists, so memory grows with the number of registered mappers
+ * and any positive version number can be used. Routes are searched with the versions and costs only,
+ * and only the mappers of a resolved route are {@link MapperRegistration#mapper() created}.<br>
+ * Mappers are added only before the object is published by {@link MapEntityVersion}. After that, a new mapper
+ * is added to a {@link #copy() copy} of this object.
  * 
  * @author Haroldo Macêdo
  *
@@ -22,90 +36,447 @@ import com.versioning.map.EntityVersionMapper;
 class VersionPath {
   private static Logger logger = LogManager.getFormatterLogger(VersionPath.class.getName());
 
-  private static final int MAXVERSIONS = 100;
+  private final String entityName;
+
+  /**
+   * Sorted list of all versions that some mapper maps from or to.
+   */
+  private int[] versions = new int[0];
+  /**
+   * Sorted list of the versions that have at least one mapper from them.
+   */
+  private int[] fromVersions = new int[0];
+  /**
+   * For each version in {@link #fromVersions}, the sorted list of versions it maps to.
+   */
+  private int[][] toVersions = new int[0][];
+  /**
+   * Stores the registration of all {@link com.versioning.map.EntityVersionMapper EntityVersionMapper} of an entity, 
+   * in the same positions of {@link #toVersions}.
+   */
+  private MapperRegistration[][] mappers = new MapperRegistration[0][];
+  /**
+   * Cost of each mapper, in the same positions of {@link #toVersions}.
+   */
+  private int[][] costs = new int[0][];
+
+  /**
+   * Marks a pair of versions that has no mapping, so a missing route is not searched again.
+   */
+  private static final MapperChain NO_ROUTE = new MapperChain("", 0, 0, new ArrayList<>(), 0);
+
+  /**
+   * Stores every {@link MapperChain} already resolved, indexed by {@link RouteTable#key(int, int) RouteTable.key()}.
+   */
+  private final RouteTable<MapperChain> routes = new RouteTable<>();
+
+  /**
+   * Exception thrown for each pair of known versions with no mapping, indexed by {@link RouteTable#key(int, int) RouteTable.key()}.
+   */
+  private final RouteTable<UnmappableRouteException> rejections = new RouteTable<>();
+  /**
+   * Exception thrown for each pair of known versions mapped in the wrong direction, a request to a previous version 
+   * or a response to a next version, indexed by {@link RouteTable#key(int, int) RouteTable.key()}.
+   */
+  private final RouteTable<UnmappableRouteException> directionRejections = new RouteTable<>();
+  /**
+   * Exception thrown for all versions not mapped by any mapper, so clients sending arbitrary versions create no objects.
+   */
+  private final UnmappableRouteException unknownVersion;
+
+  /**
+   * Routes read from a {@link RouteSnapshot}, used instead of searching, indexed by {@link RouteTable#key(int, int) RouteTable.key()}.
+   * An empty array marks a pair of versions with no mapping.
+   */
+  private final ConcurrentMap<Long, MapperRegistration[]> preloaded = new ConcurrentHashMap<>();
+
+  /**
+   * Create the object with no mappers.
+   * 
+   * @param entityName - Name of the entity of all mappers.
+   */
+  VersionPath(String entityName) {
+    this.entityName = entityName;
+    this.unknownVersion = new UnmappableRouteException("No mapping was found to map entity '" + entityName + "'. Version is not mapped by any mapper",
+        entityName, 0, 0);
+  }
+
   /**
-   * Stores all {@link com.versioning.map.EntityVersionMapper EntityVersionMapper} of an entity.
+   * Create the object with mappers already sorted, such as the ones read from a {@link RouteSnapshot}, in a single pass
+   * instead of one {@link #add(MapperRegistration) add()} call and one copy of each row for each mapper.
+   * 
+   * @param entityName - Name of the entity of all mappers.
+   * @param registrations - Mappers sorted by input version and then by output version, as returned by {@link #getRegistrations()},
+   * with no repeated pair of versions and no version below 1.
    */
-  private EntityVersionMapper[][] tableMap = new EntityVersionMapper[MAXVERSIONS][MAXVERSIONS];
+  VersionPath(String entityName, MapperRegistration[] registrations) {
+    this(entityName);
+
+    int rows = 0;
+    for (int i = 0; i < registrations.length; i++)
+      if (i == 0 || registrations[i].fromVersion() != registrations[i - 1].fromVersion())
+        rows++;
+    fromVersions = new int[rows];
+    toVersions = new int[rows][];
+    mappers = new MapperRegistration[rows][];
+    costs = new int[rows][];
+
+    int[] allVersions = new int[registrations.length * 2];
+    int row = 0;
+    for (int start = 0, end; start < registrations.length; start = end, row++) {
+      int fromVersion = registrations[start].fromVersion();
+      for (end = start + 1; end < registrations.length && registrations[end].fromVersion() == fromVersion; end++)
+        ;
+
+      fromVersions[row] = fromVersion;
+      toVersions[row] = new int[end - start];
+      mappers[row] = Arrays.copyOfRange(registrations, start, end);
+      costs[row] = new int[end - start];
+      for (int i = start; i < end; i++) {
+        toVersions[row][i - start] = registrations[i].toVersion();
+        costs[row][i - start] = registrations[i].cost();
+        allVersions[2 * i] = fromVersion;
+        allVersions[2 * i + 1] = registrations[i].toVersion();
+      }
+    }
+
+    //  Sorted list of distinct versions.
+    Arrays.sort(allVersions);
+    int count = 0;
+    for (int version : allVersions)
+      if (count == 0 || allVersions[count - 1] != version)
+        allVersions[count++] = version;
+    versions = Arrays.copyOf(allVersions, count);
+  }
+
+  /**
+   * Create a new object with the same mappers as this one.<br>
+   * Rows of {@link #toVersions}, {@link #mappers} and {@link #costs} are shared, since {@link #add(MapperRegistration) add()}
+   * replaces a row instead of changing it.
+   * 
+   * @return The copy, with no route resolved or preloaded yet.
+   */
+  VersionPath copy() {
+    VersionPath versionPath = new VersionPath(entityName);
+    versionPath.versions = versions;
+    versionPath.fromVersions = fromVersions.clone();
+    versionPath.toVersions = toVersions.clone();
+    versionPath.mappers = mappers.clone();
+    versionPath.costs = costs.clone();
+
+    return versionPath;
+  }
 
   /**
    * Stores one {@link com.versioning.map.EntityVersionMapper EntityVersionMapper} that maps entities from a version to another one.<br>
+   * The mapper itself is not created, if it was registered with a supplier.
    * 
-   * @param mapper - The mapper class
-   * @param fromVersion - The {@link com.versioning.Entity Entity} initial version. 
-   * @param toVersion - {@link com.versioning.Entity Entity} final version.
+   * @param registration - The mapper, its {@link com.versioning.Entity Entity} initial and final versions and its cost.
    */
-  void add(EntityVersionMapper mapper, int fromVersion, int toVersion){
-    if (notInRange(fromVersion) || notInRange(toVersion)) {
-      logger.warn("Versioning %d to version %d out of range. Version number range from 1 to 99.", fromVersion, toVersion);
+  void add(MapperRegistration registration){
+    int fromVersion = registration.fromVersion();
+    int toVersion = registration.toVersion();
+    if (fromVersion <= 0 || toVersion <= 0) {
+      logger.warn("Versioning %d to version %d out of range. Versions start in 1.", fromVersion, toVersion);
       return;
     }
-    
-    if (tableMap[fromVersion][toVersion] != null) {
+
+    int row = Arrays.binarySearch(fromVersions, fromVersion);
+    if (row < 0) {
+      //  First mapper from this version, create an empty row.
+      row = -row - 1;
+      fromVersions = insert(fromVersions, row, fromVersion);
+      toVersions = insert(toVersions, row, new int[0]);
+      mappers = insert(mappers, row, new MapperRegistration[0]);
+      costs = insert(costs, row, new int[0]);
+    }
+
+    int column = Arrays.binarySearch(toVersions[row], toVersion);
+    if (column >= 0) {
       logger.warn("Mapping from version %d to version %d  already exists.", fromVersion, toVersion);
       return;
     }
-    
-    tableMap[fromVersion][toVersion] = mapper;
+
+    column = -column - 1;
+    toVersions[row] = insert(toVersions[row], column, toVersion);
+    versions = insertVersion(versions, fromVersion);
+    versions = insertVersion(versions, toVersion);
+    mappers[row] = insert(mappers[row], column, registration);
+    costs[row] = insert(costs[row], column, registration.cost());
   }
-  
+
   /**
-   * Create the list of {@link com.versioning.map.EntityVersionMapper EntityVersionMapper} that
-   * can be executed to transform an {@link com.versioning.Entity Entity} from a version to another one.
-   * @param fromVersion
-   * @param toVersion
-   * @return
+   * Return the chain of {@link com.versioning.map.EntityVersionMapper EntityVersionMapper} that
+   * can be executed to transform an {@link com.versioning.Entity Entity} from a version to another one.<br>
+   * The chain is searched on the first call only. Later calls, including the ones with no mapping, return the stored result
+   * with a single lookup in a {@link RouteTable}, with no allocation.
+   * Versions not mapped by any mapper are not searched nor stored, so unknown versions sent by clients don't fill the memory.
+   * 
+   * @param fromVersion - {@link Entity} input version.
+   * @param toVersion - {@link Entity} output version.
+   * @return The chain of mappers or null if no mapping was found.
    */
-  List<EntityVersionMapper> getMappingPath(int fromVersion, int toVersion) {
-    List<EntityVersionMapper> listMapper = new ArrayList<>();
-    if ( ! findMapping(listMapper, fromVersion, toVersion))
-      return null;
-    
-    return listMapper;
+  MapperChain getMappingPath(int fromVersion, int toVersion) {
+    long key = RouteTable.key(fromVersion, toVersion);
+    MapperChain mapperChain = routes.get(key);
+    if (mapperChain == null) {
+      if (!isKnown(fromVersion) || !isKnown(toVersion))
+        return null;
+
+      MapperRegistration[] preloadedChain = preloaded.get(key);
+      mapperChain = (preloadedChain == null ? findMapping(fromVersion, toVersion) : newChain(fromVersion, toVersion, preloadedChain));
+      //  Concurrent searches find the same chain, keep the first one stored.
+      MapperChain storedChain = routes.putIfAbsent(key, mapperChain);
+      if (storedChain != null)
+        mapperChain = storedChain;
+    }
+
+    return mapperChain == NO_ROUTE ? null : mapperChain;
   }
-  
+
   /**
-   * Recursive called method to create the list with the order of listMapper's call.<br>
-   * The returned list can be for a request, when parameters {@code fromVersion} < {@code toVersion}; or
-   * for a response, when parameters {@code fromVersion} > {@code toVersion}.
+   * Return the exception thrown when there is no mapping from a version to another one.<br>
+   * The same exception is returned on every call for the same known versions, and for all unknown versions.
    * 
-   * @param listMapper - List of {@link EntityVersionMapper} to be executed to map from version {@code fromVersion} to {@code toVersion} 
    * @param fromVersion - {@link Entity} input version.
    * @param toVersion - {@link Entity} output version.
-   * @return <ul><li>true indicates a mapping was found.</li>
-   * <li>false indicates a mapping was not found.</li></ul>
+   * @return The exception, with no stack trace.
    */
-  private boolean findMapping(List<EntityVersionMapper> listMapper, int fromVersion, int toVersion) {
+  UnmappableRouteException getRejection(int fromVersion, int toVersion) {
+    long key = RouteTable.key(fromVersion, toVersion);
+    UnmappableRouteException rejection = rejections.get(key);
+    if (rejection == null) {
+      if (!isKnown(fromVersion) || !isKnown(toVersion))
+        return unknownVersion;
 
-    //  If a direct version mapping exist.
-    if (tableMap[fromVersion][toVersion] != null) {
-      listMapper.add(tableMap[fromVersion][toVersion]);
-      return true;
+      rejection = new UnmappableRouteException("No mapping was found to map entity '" + entityName + "' from version " + fromVersion 
+          + " to version " + toVersion, entityName, fromVersion, toVersion);
+      UnmappableRouteException storedRejection = rejections.putIfAbsent(key, rejection);
+      if (storedRejection != null)
+        rejection = storedRejection;
     }
 
-    // Find the mapping to the most distant version first.
-    int nextVersion = (fromVersion < toVersion ? -1 : 1);
-    for (int tvThis = toVersion + nextVersion; (nextVersion == -1 ? tvThis > fromVersion : tvThis < fromVersion); tvThis += nextVersion) {
-      if (tableMap[fromVersion][tvThis] != null) {
-        // Find any versioning path from the toVersion highest.
-        if (findMapping(listMapper, tvThis, toVersion)) {
-          listMapper.add(0, tableMap[fromVersion][tvThis]);
+    return rejection;
+  }
+
+  /**
+   * Return the exception thrown when a request is mapped to a previous version, or a response to a next version.<br>
+   * The same exception is returned on every call for the same known versions, and for all unknown versions.
+   * 
+   * @param fromVersion - {@link Entity} input version.
+   * @param toVersion - {@link Entity} output version.
+   * @return The exception, with no stack trace.
+   */
+  UnmappableRouteException getDirectionRejection(int fromVersion, int toVersion) {
+    long key = RouteTable.key(fromVersion, toVersion);
+    UnmappableRouteException rejection = directionRejections.get(key);
+    if (rejection == null) {
+      if (!isKnown(fromVersion) || !isKnown(toVersion))
+        return unknownVersion;
 
-          return true;
+      rejection = new UnmappableRouteException((fromVersion > toVersion ? "Request can't map to previous version" : "Response can't map to next version")
+          + ". Trying to map entity '" + entityName + "' from version " + fromVersion + " to version " + toVersion + ".",
+          entityName, fromVersion, toVersion);
+      UnmappableRouteException storedRejection = directionRejections.putIfAbsent(key, rejection);
+      if (storedRejection != null)
+        rejection = storedRejection;
+    }
+
+    return rejection;
+  }
+
+  /**
+   * @return Sorted list of all versions that some mapper maps from or to.
+   */
+  int[] getVersions() {
+    return versions.clone();
+  }
+
+  private boolean isKnown(int version) {
+    return Arrays.binarySearch(versions, version) >= 0;
+  }
+
+  /**
+   * @return The registration of every mapper, sorted by initial and final versions.
+   */
+  List<MapperRegistration> getRegistrations() {
+    List<MapperRegistration> registrations = new ArrayList<>();
+    for (MapperRegistration[] rowMappers : mappers)
+      registrations.addAll(Arrays.asList(rowMappers));
+
+    return registrations;
+  }
+
+  /**
+   * Return the mappers of every pair of versions already searched or preloaded, to be written to a {@link RouteSnapshot}.
+   * 
+   * @return Registrations of the mappers of each route, in execution order, indexed by {@link RouteTable#key(int, int) RouteTable.key()}
+   * and sorted by it. Pairs of versions with no mapping have an empty array.
+   */
+  Map<Long, MapperRegistration[]> getRouteTable() {
+    //  Mappers of resolved routes were all created, find their registrations by identity.
+    Map<EntityVersionMapper, MapperRegistration> createdMappers = new IdentityHashMap<>();
+    for (MapperRegistration[] rowMappers : mappers)
+      for (MapperRegistration registration : rowMappers)
+        if (registration.isCreated())
+          createdMappers.put(registration.mapper(), registration);
+
+    Map<Long, MapperRegistration[]> routeTable = new TreeMap<>(preloaded);
+    routes.forEach((key, mapperChain) -> {
+      MapperRegistration[] chain = new MapperRegistration[mapperChain == NO_ROUTE ? 0 : mapperChain.size()];
+      for (int i = 0; i < chain.length; i++)
+        chain[i] = createdMappers.get(mapperChain.mapper(i));
+      routeTable.put(key, chain);
+    });
+
+    return routeTable;
+  }
+
+  /**
+   * Store a route read from a {@link RouteSnapshot}, so it is not searched when first used.
+   * 
+   * @param fromVersion - {@link Entity} input version.
+   * @param toVersion - {@link Entity} output version.
+   * @param chain - Registrations of the mappers of the route, added to this object, or an empty array if there is no mapping.
+   */
+  void preload(int fromVersion, int toVersion, MapperRegistration[] chain) {
+    preloaded.put(RouteTable.key(fromVersion, toVersion), chain);
+  }
+
+  /**
+   * @return Every {@link MapperChain} already resolved, not including the pairs of versions with no mapping.
+   */
+  List<MapperChain> getResolvedPaths() {
+    List<MapperChain> resolvedPaths = new ArrayList<>();
+    routes.forEach((key, mapperChain) -> {
+      if (mapperChain != NO_ROUTE)
+        resolvedPaths.add(mapperChain);
+    });
+
+    return resolvedPaths;
+  }
+
+  /**
+   * Find the chain with the lowest cost to map from version {@code fromVersion} to {@code toVersion}.<br>
+   * The chain can be for a request, when parameters {@code fromVersion} < {@code toVersion}; or
+   * for a response, when parameters {@code fromVersion} > {@code toVersion}.<br>
+   * Only versions between {@code fromVersion} and {@code toVersion} are used, so every mapper moves 
+   * the entity closer to {@code toVersion}. Visiting the versions in that order, each version's lowest cost 
+   * is known before its mappers are followed, and each mapper is checked only once.
+   * 
+   * @param fromVersion - {@link Entity} input version.
+   * @param toVersion - {@link Entity} output version.
+   * @return The chain of mappers or {@link #NO_ROUTE} if no mapping was found.
+   */
+  private MapperChain findMapping(int fromVersion, int toVersion) {
+    int firstRow = Arrays.binarySearch(fromVersions, fromVersion);
+    if (firstRow < 0)
+      return NO_ROUTE;
+
+    //  Rows of the versions between {fromVersion} and {toVersion}, in the mapping direction. 
+    int step = (fromVersion < toVersion ? 1 : -1);
+    int count = 1;
+    for (int row = firstRow + step; row >= 0 && row < fromVersions.length && isBefore(fromVersions[row], toVersion, step); row += step)
+      count++;
+
+    //  Position i is the row {firstRow + i * step}. Position {count} is {toVersion}.
+    long[] pathCost = new long[count + 1];
+    int[] pathHops = new int[count + 1];
+    int[] previousPosition = new int[count + 1];
+    MapperRegistration[] previousMapper = new MapperRegistration[count + 1];
+    Arrays.fill(pathCost, Long.MAX_VALUE);
+    pathCost[0] = 0;
+
+    for (int position = 0; position < count; position++) {
+      if (pathCost[position] == Long.MAX_VALUE)
+        continue;
+
+      int row = firstRow + position * step;
+      int[] rowVersions = toVersions[row];
+      for (int column = 0; column < rowVersions.length; column++) {
+        int version = rowVersions[column];
+        //  Skip mappers that don't move towards {toVersion} or that go beyond it.
+        if (!isBefore(fromVersions[row], version, step) || isBefore(toVersion, version, step))
+          continue;
+
+        int nextPosition;
+        if (version == toVersion) {
+          nextPosition = count;
+        } else {
+          int nextRow = Arrays.binarySearch(fromVersions, version);
+          if (nextRow < 0)
+            continue;
+          nextPosition = (nextRow - firstRow) * step;
+        }
+
+        long cost = pathCost[position] + costs[row][column];
+        int hops = pathHops[position] + 1;
+        if (cost < pathCost[nextPosition] || (cost == pathCost[nextPosition] && hops < pathHops[nextPosition])) {
+          pathCost[nextPosition] = cost;
+          pathHops[nextPosition] = hops;
+          previousPosition[nextPosition] = position;
+          previousMapper[nextPosition] = mappers[row][column];
         }
       }
     }
-    
-    return false;
+
+    if (pathCost[count] == Long.MAX_VALUE)
+      return NO_ROUTE;
+
+    //  Walk back from {toVersion} to {fromVersion}.
+    MapperRegistration[] chain = new MapperRegistration[pathHops[count]];
+    for (int position = count, hop = chain.length - 1; position != 0; position = previousPosition[position], hop--)
+      chain[hop] = previousMapper[position];
+
+    return newChain(fromVersion, toVersion, chain);
   }
-  
+
   /**
-   * Validate wether the version is within a valid range.
+   * Create the chain of some mappers, creating the mappers not created yet.
    * 
-   * @param version Number of version.
-   * @return true if is within range.
+   * @param fromVersion - {@link Entity} input version.
+   * @param toVersion - {@link Entity} output version.
+   * @param chain - Registrations of the mappers, in execution order.
+   * @return The chain or {@link #NO_ROUTE} if {@code chain} is empty.
+   */
+  private MapperChain newChain(int fromVersion, int toVersion, MapperRegistration[] chain) {
+    if (chain.length == 0)
+      return NO_ROUTE;
+
+    List<EntityVersionMapper> listMapper = new ArrayList<>(chain.length);
+    long cost = 0;
+    for (MapperRegistration registration : chain) {
+      listMapper.add(registration.mapper());
+      cost += registration.cost();
+    }
+
+    return new MapperChain(entityName, fromVersion, toVersion, listMapper, cost);
+  }
+
+  /**
+   * @return true if {@code version} comes before {@code otherVersion} when moving in the {@code step} direction.
    */
-  private boolean notInRange(int version) {
-    return (version <= 0 || version >= MAXVERSIONS);
+  private static boolean isBefore(int version, int otherVersion, int step) {
+    return step > 0 ? version < otherVersion : version > otherVersion;
+  }
+
+  private static int[] insert(int[] array, int index, int value) {
+    int[] newArray = new int[array.length + 1];
+    System.arraycopy(array, 0, newArray, 0, index);
+    newArray[index] = value;
+    System.arraycopy(array, index, newArray, index + 1, array.length - index);
+    return newArray;
+  }
+
+  private static int[] insertVersion(int[] array, int version) {
+    int index = Arrays.binarySearch(array, version);
+    return index >= 0 ? array : insert(array, -index - 1, version);
+  }
+
+  private static <T> T[] insert(T[] array, int index, T value) {
+    T[] newArray = Arrays.copyOf(array, array.length + 1);
+    newArray[index] = value;
+    System.arraycopy(array, index, newArray, index + 1, array.length - index);
+    return newArray;
   }
 }
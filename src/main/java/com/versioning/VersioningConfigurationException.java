@@ -1,16 +1,22 @@
 package com.versioning;
 
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
-
 public class VersioningConfigurationException extends Exception {
 
   private static final long serialVersionUID = -5153980222590000587L;
-  private static Logger logger = LogManager.getFormatterLogger(VersioningConfigurationException.class.getName());
 
   
   public VersioningConfigurationException(String message) {
     super(message);
-    logger.debug(message);
+  }
+
+  /**
+   * Create the exception with no stack trace, for exceptions created often or thrown many times, such as
+   * {@link UnmappableRouteException}.
+   * 
+   * @param message - Description of the error.
+   * @param writableStackTrace - false to not fill the stack trace.
+   */
+  protected VersioningConfigurationException(String message, boolean writableStackTrace) {
+    super(message, null, false, writableStackTrace);
   }
 }
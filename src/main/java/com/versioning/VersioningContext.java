@@ -0,0 +1,151 @@
+package com.versioning;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.versioning.entity.Entity;
+import com.versioning.entity.EntityDescriptor;
+import com.versioning.model.ExecuteOperationVersion;
+
+/**
+ * Set of registered {@link com.versioning.map.EntityVersionMapper EntityVersionMapper} objects used by executers.<br>
+ * The global context, used by the static methods of {@link VersionConfigure}, reads the mappers registered by
+ * {@link VersionConfigure#registerMappers(com.versioning.map.EntityVersionMapper...) VersionConfigure.registerMappers()}
+ * at each request. A frozen context, created by {@link VersionConfigure#newContext(com.versioning.map.EntityVersionMapper...) VersionConfigure.newContext()}
+ * or {@link VersionConfigure#freeze()}, keeps the same mappers forever, so many independent contexts,
+ * such as one for each test or tenant, can be used at the same time:
+ * <pre>
+ * VersioningContext context = VersionConfigure.newContext(new CustomerV1ToV2(), new CustomerV2ToV3());
+ * VersionExecuter executer = context.get(new FindCustomerV3());
+ * </pre>
+ * The executers of a frozen context read its mappers from a final field, without the volatile read of the global mappers.
+ * The {@link VersioningListener} and the fused chains setting are shared by all contexts.
+ *
+ * @author Haroldo Macêdo
+ *
+ */
+public final class VersioningContext {
+
+  private static Logger logger = LogManager.getFormatterLogger(VersioningContext.class.getName());
+
+  private static final VersioningContext global = new VersioningContext(null);
+
+  /**
+   * Mappers of a frozen context, or null for the global context.
+   */
+  private final MapEntityVersion frozenMappings;
+
+  VersioningContext(MapEntityVersion frozenMappings) {
+    this.frozenMappings = frozenMappings;
+  }
+
+  /**
+   * @return The context of the mappers registered by {@link VersionConfigure}.
+   */
+  static VersioningContext global() {
+    return global;
+  }
+
+  /**
+   * @return The mappers of this context, at the time of the call.
+   */
+  MapEntityVersion mappings() {
+    return frozenMappings != null ? frozenMappings : MapEntityVersion.global();
+  }
+
+  /**
+   * @return true if the mappers of this context never change.
+   */
+  public boolean isFrozen() {
+    return frozenMappings != null;
+  }
+
+  /**
+   * Return the executer of an operation, which maps the versions with the mappers of this context.
+   *
+   * @param executer - Executer of the operation.
+   * @return Executer that maps the versions and executes {@code executer}.
+   * @throws VersioningConfigurationException - If the executer has no annotations.
+   */
+  public VersionExecuter get(ExecuteOperationVersion executer) throws VersioningConfigurationException {
+    return new VersionOperationWrapper(this, executer, null, null);
+  }
+
+  /**
+   * Return the executer of an operation whose results are cached.
+   *
+   * @see VersionConfigure#get(ExecuteOperationVersion, ResponseCache)
+   */
+  public VersionExecuter get(ExecuteOperationVersion executer, ResponseCache responseCache) throws VersioningConfigurationException {
+    return new VersionOperationWrapper(this, executer, responseCache, null);
+  }
+
+  /**
+   * Return the executer of an operation whose results are cached, or whose concurrent executions with the same input are shared.
+   *
+   * @see VersionConfigure#get(ExecuteOperationVersion, ResponseCache, ExecutionCoalescer)
+   */
+  public VersionExecuter get(ExecuteOperationVersion executer, ResponseCache responseCache, ExecutionCoalescer coalescer) 
+      throws VersioningConfigurationException {
+    return new VersionOperationWrapper(this, executer, responseCache, coalescer);
+  }
+
+  /**
+   * Return the executer of an operation that has many versions running side by side.
+   *
+   * @see VersionConfigure#getDispatcher(ExecuteOperationVersion...)
+   */
+  public VersionExecuter getDispatcher(ExecuteOperationVersion... executers) throws VersioningConfigurationException {
+    return new VersionDispatcher(this, executers);
+  }
+
+  /**
+   * Validate the mappers of this context against the versions of executers.
+   *
+   * @see VersionConfigure#validate(ExecuteOperationVersion...)
+   */
+  public VersioningReport validate(ExecuteOperationVersion... executers) {
+    MapEntityVersion mappings = mappings();
+    VersioningReport report = new VersioningReport();
+    for (ExecuteOperationVersion executer : executers) {
+      try {
+        VersionOperationWrapper wrapper = new VersionOperationWrapper(this, executer, null, null);
+        mappings.validate(wrapper.getExecuterInputVersion(), true, report);
+        mappings.validate(wrapper.getExecuterOutputVersion(), false, report);
+      } catch (VersioningConfigurationException e) {
+        report.addProblem(e.getMessage());
+      }
+    }
+
+    for (String problem : report.getProblems())
+      logger.warn("%s", problem);
+    logger.debug("Validation resolved %d routes and found %d problems", report.getRoutes().size(), report.getProblems().size());
+    return report;
+  }
+
+  /**
+   * Execute, with sample entities, every route of this context that starts at their versions.
+   *
+   * @see VersionConfigure#warmUp(int, Entity...)
+   */
+  public int warmUp(int iterations, Entity... samples) throws VersioningConfigurationException {
+    MapEntityVersion mappings = mappings();
+    int warmed = 0;
+    for (Entity sample : samples) {
+      EntityDescriptor sampleVersion = EntityDescriptor.of(sample.getClass());
+      if (sampleVersion == null)
+        throw new VersioningConfigurationException("Annotation for class " + sample.getClass().getName() + " is not defined.");
+      warmed += mappings.warmUp(sample, sampleVersion, iterations);
+    }
+
+    logger.debug("Warm up executed %d routes", warmed);
+    return warmed;
+  }
+
+  /**
+   * Log at INFO level the number of entities mapped by this context for each entity and pair of versions.
+   */
+  public void logStatistics() {
+    mappings().logStatistics();
+  }
+}
@@ -0,0 +1,62 @@
+package com.versioning;
+
+/**
+ * Receives the measures of the framework work, for monitoring.<br>
+ * Set by {@link VersionConfigure#setListener(VersioningListener) VersionConfigure.setListener()}. 
+ * When no listener is set, nothing is measured.<br>
+ * Methods are called by the request threads, so they must be thread-safe, fast and must not throw exceptions.
+ * {@link VersioningStatistics} is the listener provided by the framework.
+ *
+ * @author Haroldo Macêdo
+ *
+ */
+public interface VersioningListener {
+
+  /**
+   * Called after an entity is mapped from a version to another one.<br>
+   * Also called for each entity of the stream returned by 
+   * {@link VersionExecuter#executeStream(java.util.stream.Stream, Class, Class) executeStream()}, as it is mapped.
+   * When a mapper of the route is a {@link com.versioning.map.StreamEntityVersionMapper StreamEntityVersionMapper}, it is called
+   * for each entity out of the route, with the time to pull it out, including the time to read the source stream.
+   *
+   * @param route - Entity name, versions and number of mappers executed.
+   * @param nanos - Time spent executing the mappers, in nanoseconds.
+   */
+  public default void mapped(MappingRoute route, long nanos) {
+  }
+
+  /**
+   * Called after many entities are mapped together, by {@link VersionExecuter#executeAll(java.util.List, Class) executeAll()}.<br>
+   * By default, reports the mean time of each entity to {@link #mapped(MappingRoute, long) mapped()}.
+   *
+   * @param route - Entity name, versions and number of mappers executed.
+   * @param count - Number of mapped entities.
+   * @param nanos - Time spent mapping all entities, in nanoseconds.
+   */
+  public default void mappedAll(MappingRoute route, int count, long nanos) {
+    for (int i = 0; i < count; i++)
+      mapped(route, nanos / count);
+  }
+
+  /**
+   * Called after an operation is executed by a {@link VersionExecuter}.
+   *
+   * @param executerClass - Class of the {@link com.versioning.model.ExecuteOperationVersion ExecuteOperationVersion}.
+   * @param nanos - Time spent by the operation, not including mapping, in nanoseconds.
+   */
+  public default void executed(Class<?> executerClass, long nanos) {
+  }
+
+  /**
+   * Called after an operation is executed for many entities, by {@link VersionExecuter#executeAll(java.util.List, Class) executeAll()}.<br>
+   * By default, reports the mean time of each entity to {@link #executed(Class, long) executed()}.
+   *
+   * @param executerClass - Class of the {@link com.versioning.model.ExecuteOperationVersion ExecuteOperationVersion}.
+   * @param count - Number of entities.
+   * @param nanos - Time spent by the operation for all entities, in nanoseconds.
+   */
+  public default void executedAll(Class<?> executerClass, int count, long nanos) {
+    for (int i = 0; i < count; i++)
+      executed(executerClass, nanos / count);
+  }
+}
@@ -0,0 +1,51 @@
+package com.versioning;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Result of {@link VersionConfigure#validate(com.versioning.model.ExecuteOperationVersion...) VersionConfigure.validate()}.<br>
+ * Lists every route resolved for the validated executers and every configuration problem found,
+ * such as entity versions that can't be mapped to or from an executer version.
+ *
+ * @author Haroldo Macêdo
+ *
+ */
+public final class VersioningReport {
+
+  private final List<MappingRoute> routes = new ArrayList<>();
+  private final List<String> problems = new ArrayList<>();
+
+  VersioningReport() {
+  }
+
+  void addRoute(MappingRoute route) {
+    routes.add(route);
+  }
+
+  void addProblem(String problem) {
+    problems.add(problem);
+  }
+
+  /**
+   * @return Routes resolved, from each older client version to an executer version and back. 
+   */
+  public List<MappingRoute> getRoutes() {
+    return Collections.unmodifiableList(routes);
+  }
+
+  /**
+   * @return Description of each problem found.
+   */
+  public List<String> getProblems() {
+    return Collections.unmodifiableList(problems);
+  }
+
+  /**
+   * @return true if no problem was found.
+   */
+  public boolean isValid() {
+    return problems.isEmpty();
+  }
+}
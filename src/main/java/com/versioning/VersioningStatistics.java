@@ -0,0 +1,134 @@
+package com.versioning;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * {@link VersioningListener} that keeps, for each {@link MappingRoute} and each executer, 
+ * the number of calls and a latency histogram.<br>
+ * Recording doesn't lock: each histogram is a set of striped counters.
+ * The statistics can be read by the methods of {@link VersioningStatisticsMXBean}, locally or through JMX:
+ * <pre>
+ * VersioningStatistics statistics = new VersioningStatistics();
+ * statistics.registerMBean();
+ * VersionConfigure.setListener(statistics);
+ * </pre>
+ *
+ * @author Haroldo Macêdo
+ *
+ */
+public class VersioningStatistics implements VersioningListener, VersioningStatisticsMXBean {
+
+  private final ConcurrentMap<MappingRoute, LatencyHistogram> mappings = new ConcurrentHashMap<>();
+  private final ConcurrentMap<Class<?>, LatencyHistogram> executions = new ConcurrentHashMap<>();
+
+  @Override
+  public void mapped(MappingRoute route, long nanos) {
+    histogram(mappings, route).record(nanos);
+  }
+
+  @Override
+  public void executed(Class<?> executerClass, long nanos) {
+    histogram(executions, executerClass).record(nanos);
+  }
+
+  @Override
+  public void mappedAll(MappingRoute route, int count, long nanos) {
+    histogram(mappings, route).record(nanos / count, count);
+  }
+
+  @Override
+  public void executedAll(Class<?> executerClass, int count, long nanos) {
+    histogram(executions, executerClass).record(nanos / count, count);
+  }
+
+  /**
+   * Register this object in the platform MBean server, named "com.versioning:type=VersioningStatistics".
+   *
+   * @throws VersioningConfigurationException - If the registration fails, such as when another object is already registered.
+   */
+  public void registerMBean() throws VersioningConfigurationException {
+    try {
+      ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName("com.versioning:type=VersioningStatistics"));
+    } catch (JMException e) {
+      throw new VersioningConfigurationException("Can't register VersioningStatistics MBean: " + e.getMessage());
+    }
+  }
+
+  @Override
+  public Map<String, Long> getMappedCounts() {
+    return longs(mappings, LatencyHistogram::count);
+  }
+
+  @Override
+  public Map<String, Integer> getMappingHops() {
+    Map<String, Integer> hops = new TreeMap<>();
+    for (MappingRoute route : mappings.keySet())
+      hops.put(route.toString(), route.getHops());
+    return hops;
+  }
+
+  @Override
+  public Map<String, Double> getMappingMeanNanos() {
+    return doubles(mappings, LatencyHistogram::mean);
+  }
+
+  @Override
+  public Map<String, Long> getMappingP99Nanos() {
+    return longs(mappings, h -> h.percentile(99));
+  }
+
+  @Override
+  public Map<String, Long> getExecutedCounts() {
+    return longs(executions, LatencyHistogram::count);
+  }
+
+  @Override
+  public Map<String, Double> getExecutionMeanNanos() {
+    return doubles(executions, LatencyHistogram::mean);
+  }
+
+  @Override
+  public Map<String, Long> getExecutionP99Nanos() {
+    return longs(executions, h -> h.percentile(99));
+  }
+
+  @Override
+  public void reset() {
+    mappings.clear();
+    executions.clear();
+  }
+
+  private static <K> LatencyHistogram histogram(ConcurrentMap<K, LatencyHistogram> histograms, K key) {
+    LatencyHistogram histogram = histograms.get(key);
+    if (histogram == null)
+      histogram = histograms.computeIfAbsent(key, k -> new LatencyHistogram());
+    return histogram;
+  }
+
+  private static <K> Map<String, Long> longs(Map<K, LatencyHistogram> histograms, ToLongFunction<LatencyHistogram> value) {
+    Map<String, Long> values = new TreeMap<>();
+    for (Map.Entry<K, LatencyHistogram> entry : histograms.entrySet())
+      values.put(name(entry.getKey()), value.applyAsLong(entry.getValue()));
+    return values;
+  }
+
+  private static <K> Map<String, Double> doubles(Map<K, LatencyHistogram> histograms, ToDoubleFunction<LatencyHistogram> value) {
+    Map<String, Double> values = new TreeMap<>();
+    for (Map.Entry<K, LatencyHistogram> entry : histograms.entrySet())
+      values.put(name(entry.getKey()), value.applyAsDouble(entry.getValue()));
+    return values;
+  }
+
+  private static String name(Object key) {
+    return key instanceof Class ? ((Class<?>) key).getName() : key.toString();
+  }
+}
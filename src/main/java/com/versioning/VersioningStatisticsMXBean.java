@@ -0,0 +1,29 @@
+package com.versioning;
+
+import java.util.Map;
+
+/**
+ * JMX view of {@link VersioningStatistics}.<br>
+ * Mapping statistics are keyed by route, as in "customer v1->v3". Execution statistics are keyed by executer class name.
+ *
+ * @author Haroldo Macêdo
+ *
+ */
+public interface VersioningStatisticsMXBean {
+
+  public Map<String, Long> getMappedCounts();
+
+  public Map<String, Integer> getMappingHops();
+
+  public Map<String, Double> getMappingMeanNanos();
+
+  public Map<String, Long> getMappingP99Nanos();
+
+  public Map<String, Long> getExecutedCounts();
+
+  public Map<String, Double> getExecutionMeanNanos();
+
+  public Map<String, Long> getExecutionP99Nanos();
+
+  public void reset();
+}
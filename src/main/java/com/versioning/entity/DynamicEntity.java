@@ -0,0 +1,185 @@
+package com.versioning.entity;
+
+/**
+ * {@link Entity} whose name, version and fields are declared by an {@link EntitySchema} instead of a class.<br>
+ * Values are kept in the slots of the schema, so fields of type {@code int}, {@code long}, {@code double} and {@code boolean}
+ * are read and written with no boxing. Accessors by field index are faster than the ones by name:
+ * <pre>
+ * int fullName = customerV2.fieldIndex("fullName");
+ * DynamicEntity customer = customerV2.newEntity();
+ * customer.set(fullName, "Ann");
+ * customer.setLong("id", 42);
+ * </pre>
+ * Dynamic entities are mapped by the mappers built by {@link com.versioning.map.SchemaMapping SchemaMapping},
+ * through {@link com.versioning.DynamicEntityMapping DynamicEntityMapping}.
+ *
+ * @author Haroldo Macêdo
+ *
+ */
+public final class DynamicEntity implements Entity {
+
+  private final EntitySchema schema;
+  /**
+   * Values of the primitive fields. Doubles are kept as their bits and booleans as 0 or 1.
+   */
+  final long[] primitives;
+  /**
+   * Values of the other fields.
+   */
+  final Object[] references;
+
+  DynamicEntity(EntitySchema schema, long[] primitives, Object[] references) {
+    this.schema = schema;
+    this.primitives = primitives;
+    this.references = references;
+  }
+
+  /**
+   * @return Schema of this entity, with its name and version.
+   */
+  public EntitySchema schema() {
+    return schema;
+  }
+
+  public int getInt(int field) {
+    return (int) primitives[slot(field, int.class)];
+  }
+
+  public long getLong(int field) {
+    return primitives[slot(field, long.class)];
+  }
+
+  public double getDouble(int field) {
+    return Double.longBitsToDouble(primitives[slot(field, double.class)]);
+  }
+
+  public boolean getBoolean(int field) {
+    return primitives[slot(field, boolean.class)] != 0;
+  }
+
+  public void setInt(int field, int value) {
+    primitives[slot(field, int.class)] = value;
+  }
+
+  public void setLong(int field, long value) {
+    primitives[slot(field, long.class)] = value;
+  }
+
+  public void setDouble(int field, double value) {
+    primitives[slot(field, double.class)] = Double.doubleToRawLongBits(value);
+  }
+
+  public void setBoolean(int field, boolean value) {
+    primitives[slot(field, boolean.class)] = (value ? 1 : 0);
+  }
+
+  /**
+   * Return the value of any field, boxing the primitive ones.
+   *
+   * @param field - Index of the field.
+   * @return The value.
+   */
+  public Object get(int field) {
+    Class<?> type = schema.fieldType(field);
+    if (type.isPrimitive())
+      return box(type, primitives[schema.slot(field)]);
+    return references[schema.slot(field)];
+  }
+
+  /**
+   * Set the value of any field, unboxing the primitive ones.
+   *
+   * @param field - Index of the field.
+   * @param value - The value, of the type of the field. Null only for fields of non primitive types.
+   * @throws IllegalArgumentException - If the value is not of the type of the field.
+   */
+  public void set(int field, Object value) {
+    Class<?> type = schema.fieldType(field);
+    if (type.isPrimitive())
+      primitives[schema.slot(field)] = unbox(type, value, schema.fieldName(field));
+    else if (value == null || type.isInstance(value))
+      references[schema.slot(field)] = value;
+    else
+      throw new IllegalArgumentException("Value " + value + " can't be set to field '" + schema.fieldName(field) + "' of type " + type.getName() + ".");
+  }
+
+  public int getInt(String field) {
+    return getInt(schema.requireField(field));
+  }
+
+  public long getLong(String field) {
+    return getLong(schema.requireField(field));
+  }
+
+  public double getDouble(String field) {
+    return getDouble(schema.requireField(field));
+  }
+
+  public boolean getBoolean(String field) {
+    return getBoolean(schema.requireField(field));
+  }
+
+  public Object get(String field) {
+    return get(schema.requireField(field));
+  }
+
+  public void setInt(String field, int value) {
+    setInt(schema.requireField(field), value);
+  }
+
+  public void setLong(String field, long value) {
+    setLong(schema.requireField(field), value);
+  }
+
+  public void setDouble(String field, double value) {
+    setDouble(schema.requireField(field), value);
+  }
+
+  public void setBoolean(String field, boolean value) {
+    setBoolean(schema.requireField(field), value);
+  }
+
+  public void set(String field, Object value) {
+    set(schema.requireField(field), value);
+  }
+
+  private int slot(int field, Class<?> type) {
+    if (schema.fieldType(field) != type)
+      throw new IllegalArgumentException("Field '" + schema.fieldName(field) + "' is of type " + schema.fieldType(field).getName() + ", not " + type + ".");
+    return schema.slot(field);
+  }
+
+  static Object box(Class<?> type, long bits) {
+    if (type == int.class)
+      return (int) bits;
+    if (type == double.class)
+      return Double.longBitsToDouble(bits);
+    if (type == boolean.class)
+      return bits != 0;
+    return bits;
+  }
+
+  static long unbox(Class<?> type, Object value, String fieldName) {
+    if (type == int.class && value instanceof Integer)
+      return (Integer) value;
+    if (type == long.class && value instanceof Long)
+      return (Long) value;
+    if (type == double.class && value instanceof Double)
+      return Double.doubleToRawLongBits((Double) value);
+    if (type == boolean.class && value instanceof Boolean)
+      return (Boolean) value ? 1 : 0;
+
+    throw new IllegalArgumentException("Value " + value + " can't be set to field '" + fieldName + "' of type " + type + ".");
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder text = new StringBuilder(schema.name()).append(" v").append(schema.version()).append(" {");
+    for (int i = 0; i < schema.size(); i++) {
+      if (i > 0)
+        text.append(", ");
+      text.append(schema.fieldName(i)).append('=').append(get(i));
+    }
+    return text.append('}').toString();
+  }
+}
@@ -0,0 +1,130 @@
+package com.versioning.entity;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Name and version of an {@link Entity}, read once from its {@link EntityVersion} annotation.<br>
+ * Every entity name receives a unique number, its id, so entities can be compared and
+ * looked up without comparing strings.
+ *
+ * @author Haroldo Macêdo
+ *
+ */
+public final class EntityDescriptor {
+
+  private static final AtomicInteger nextId = new AtomicInteger();
+  private static final ConcurrentMap<String, Integer> ids = new ConcurrentHashMap<>();
+
+  /**
+   * Descriptors declared by {@link #index(String, String, int) index()}, indexed by class name and used instead of the annotation.
+   */
+  private static final ConcurrentMap<String, EntityDescriptor> indexed = new ConcurrentHashMap<>();
+
+  /**
+   * Descriptor of each entity class. The annotation is read on the first use of the class only.
+   */
+  private static final ClassValue<EntityDescriptor> descriptors = new ClassValue<EntityDescriptor>() {
+    @Override
+    protected EntityDescriptor computeValue(Class<?> entityClass) {
+      EntityDescriptor indexedDescriptor = indexed.get(entityClass.getName());
+      if (indexedDescriptor != null)
+        return indexedDescriptor;
+
+      EntityVersion entityVersion = entityClass.getAnnotation(EntityVersion.class);
+      return entityVersion == null ? null : new EntityDescriptor(entityVersion.name(), entityVersion.version());
+    }
+  };
+
+  private final String name;
+  private final int version;
+  private final int id;
+
+  /**
+   * Create the descriptor of an entity name and version.
+   *
+   * @param name - Name of the entity.
+   * @param version - Version of the entity.
+   */
+  public EntityDescriptor(String name, int version) {
+    this.name = name;
+    this.version = version;
+    this.id = idOf(name);
+  }
+
+  /**
+   * Return the descriptor of an entity class.
+   *
+   * @param entityClass - Class annotated with {@link EntityVersion}.
+   * @return The descriptor or null if the class has no {@link EntityVersion} annotation.
+   */
+  public static EntityDescriptor of(Class<?> entityClass) {
+    return descriptors.get(entityClass);
+  }
+
+  /**
+   * Declare the name and version of an entity class, so its annotation is not read.<br>
+   * Used by the {@link com.versioning.index.VersioningIndex VersioningIndex} generated at compile time.
+   * It has no effect on a class already passed to {@link #of(Class)}.
+   *
+   * @param entityClass - Class of the entity.
+   * @param name - Name of the entity.
+   * @param version - Version of the entity.
+   */
+  public static void index(Class<?> entityClass, String name, int version) {
+    index(entityClass.getName(), name, version);
+  }
+
+  /**
+   * Declare the name and version of an entity class by its name, so the class is not loaded before it is used.
+   *
+   * @param entityClassName - Binary name of the class, as returned by {@link Class#getName()}.
+   * @param name - Name of the entity.
+   * @param version - Version of the entity.
+   */
+  public static void index(String entityClassName, String name, int version) {
+    indexed.putIfAbsent(entityClassName, new EntityDescriptor(name, version));
+  }
+
+  /**
+   * Return the unique number of an entity name.
+   *
+   * @param name - Name of the entity.
+   * @return The same number for every call with the same name.
+   */
+  public static int idOf(String name) {
+    return ids.computeIfAbsent(name, n -> nextId.getAndIncrement());
+  }
+
+  public String name() {
+    return name;
+  }
+
+  public int version() {
+    return version;
+  }
+
+  public int id() {
+    return id;
+  }
+
+  @Override
+  public int hashCode() {
+    return id * 31 + version;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (!(obj instanceof EntityDescriptor))
+      return false;
+
+    EntityDescriptor ed = (EntityDescriptor) obj;
+    return ed.id == this.id && ed.version == this.version;
+  }
+
+  @Override
+  public String toString() {
+    return name + " v" + version;
+  }
+}
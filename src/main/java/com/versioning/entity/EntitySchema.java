@@ -0,0 +1,200 @@
+package com.versioning.entity;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.versioning.VersioningConfigurationException;
+
+/**
+ * Fields of a version of a {@link DynamicEntity}, used instead of an entity class.<br>
+ * Each field has a slot: fields of type {@code int}, {@code long}, {@code double} and {@code boolean} are kept unboxed in 
+ * an array of longs, and fields of other types in an array of objects. So new versions of an entity can be declared 
+ * at run time, with no new classes:
+ * <pre>
+ * EntitySchema customerV2 = EntitySchema.builder("customer", 2)
+ *     .field("id", long.class)
+ *     .field("fullName", String.class)
+ *     .field("score", double.class)
+ *     .build();
+ * </pre>
+ * Schemas are immutable and compared by identity, so each version must be built once and shared.
+ *
+ * @author Haroldo Macêdo
+ *
+ */
+public final class EntitySchema {
+
+  private final EntityDescriptor descriptor;
+  private final String[] fieldNames;
+  private final Class<?>[] fieldTypes;
+  /**
+   * Slot of each field, in the array of longs for primitive fields, or in the array of objects for the others.
+   */
+  private final int[] slots;
+  private final Map<String, Integer> fieldIndexes;
+  private final int primitiveSlots;
+  private final int referenceSlots;
+
+  private EntitySchema(String name, int version, List<String> names, List<Class<?>> types) {
+    this.descriptor = new EntityDescriptor(name, version);
+    this.fieldNames = names.toArray(new String[names.size()]);
+    this.fieldTypes = types.toArray(new Class<?>[types.size()]);
+    this.slots = new int[fieldNames.length];
+    Map<String, Integer> indexes = new HashMap<>();
+    int primitives = 0;
+    int references = 0;
+    for (int i = 0; i < fieldNames.length; i++) {
+      slots[i] = (fieldTypes[i].isPrimitive() ? primitives++ : references++);
+      indexes.put(fieldNames[i], i);
+    }
+    this.fieldIndexes = Collections.unmodifiableMap(indexes);
+    this.primitiveSlots = primitives;
+    this.referenceSlots = references;
+  }
+
+  /**
+   * Start the declaration of a schema.
+   *
+   * @param name - Name of the entity.
+   * @param version - Version of the entity.
+   * @return Builder that receives the fields.
+   */
+  public static Builder builder(String name, int version) {
+    return new Builder(name, version);
+  }
+
+  /**
+   * Declares the fields of an {@link EntitySchema}, in order.
+   */
+  public static final class Builder {
+    private final String name;
+    private final int version;
+    private final List<String> names = new ArrayList<>();
+    private final List<Class<?>> types = new ArrayList<>();
+
+    private Builder(String name, int version) {
+      this.name = name;
+      this.version = version;
+    }
+
+    /**
+     * Declare a field.
+     *
+     * @param fieldName - Name of the field.
+     * @param type - Type of the field. Primitive types must be {@code int}, {@code long}, {@code double} or {@code boolean}.
+     * @return This object.
+     */
+    public Builder field(String fieldName, Class<?> type) {
+      names.add(fieldName);
+      types.add(type);
+      return this;
+    }
+
+    /**
+     * Build the schema.
+     *
+     * @return The schema.
+     * @throws VersioningConfigurationException - If the version is not positive, a field is declared twice or has an unsupported primitive type.
+     */
+    public EntitySchema build() throws VersioningConfigurationException {
+      if (version <= 0)
+        throw new VersioningConfigurationException("Invalid version " + version + " of entity '" + name + "'. Versions start in 1.");
+      for (int i = 0; i < names.size(); i++) {
+        if (names.indexOf(names.get(i)) != i)
+          throw new VersioningConfigurationException("Field '" + names.get(i) + "' of entity '" + name + "' v" + version + " is declared twice.");
+        Class<?> type = types.get(i);
+        if (type.isPrimitive() && type != int.class && type != long.class && type != double.class && type != boolean.class)
+          throw new VersioningConfigurationException("Type " + type + " of field '" + names.get(i) + "' is not supported. Use int, long, double or boolean.");
+      }
+
+      return new EntitySchema(name, version, names, types);
+    }
+  }
+
+  /**
+   * Create an entity of this schema, with all fields set to 0, false or null.
+   *
+   * @return The entity.
+   */
+  public DynamicEntity newEntity() {
+    return new DynamicEntity(this, new long[primitiveSlots], new Object[referenceSlots]);
+  }
+
+  /**
+   * @return Name and version of the entity.
+   */
+  public EntityDescriptor descriptor() {
+    return descriptor;
+  }
+
+  public String name() {
+    return descriptor.name();
+  }
+
+  public int version() {
+    return descriptor.version();
+  }
+
+  /**
+   * @return Number of fields.
+   */
+  public int size() {
+    return fieldNames.length;
+  }
+
+  /**
+   * @param fieldName - Name of a field.
+   * @return Index of the field, or -1 if it is not declared.
+   */
+  public int fieldIndex(String fieldName) {
+    Integer index = fieldIndexes.get(fieldName);
+    return index == null ? -1 : index;
+  }
+
+  /**
+   * @param field - Index of a field.
+   * @return Name of the field.
+   */
+  public String fieldName(int field) {
+    return fieldNames[field];
+  }
+
+  /**
+   * @param field - Index of a field.
+   * @return Type of the field.
+   */
+  public Class<?> fieldType(int field) {
+    return fieldTypes[field];
+  }
+
+  /**
+   * @return Index of the field.
+   * @throws IllegalArgumentException - If the field is not declared.
+   */
+  int requireField(String fieldName) {
+    Integer index = fieldIndexes.get(fieldName);
+    if (index == null)
+      throw new IllegalArgumentException("Field '" + fieldName + "' is not declared in " + this + ".");
+    return index;
+  }
+
+  int slot(int field) {
+    return slots[field];
+  }
+
+  int primitiveSlots() {
+    return primitiveSlots;
+  }
+
+  int referenceSlots() {
+    return referenceSlots;
+  }
+
+  @Override
+  public String toString() {
+    return "schema of entity '" + name() + "' v" + version();
+  }
+}
@@ -0,0 +1,132 @@
+package com.versioning.entity;
+
+import java.util.Map;
+
+import com.versioning.VersioningConfigurationException;
+
+/**
+ * Precomputed copy of the slots of a {@link DynamicEntity} of a schema to a new entity of another schema.<br>
+ * The fields with fixed values are set once, in template arrays. Mapping an entity clones the templates,
+ * with no boxing, and copies each slot from its index in the initial schema to its index in the final schema.
+ * Used by the mappers built by {@link com.versioning.map.SchemaMapping SchemaMapping}.
+ *
+ * @author Haroldo Macêdo
+ *
+ */
+public final class SlotPermutation {
+
+  private final EntitySchema fromSchema;
+  private final EntitySchema toSchema;
+  private final int[] primitivesFrom;
+  private final int[] primitivesTo;
+  private final int[] referencesFrom;
+  private final int[] referencesTo;
+  private final long[] primitivesTemplate;
+  private final Object[] referencesTemplate;
+
+  private SlotPermutation(EntitySchema fromSchema, EntitySchema toSchema, int primitiveCopies, int referenceCopies) {
+    this.fromSchema = fromSchema;
+    this.toSchema = toSchema;
+    this.primitivesFrom = new int[primitiveCopies];
+    this.primitivesTo = new int[primitiveCopies];
+    this.referencesFrom = new int[referenceCopies];
+    this.referencesTo = new int[referenceCopies];
+    this.primitivesTemplate = new long[toSchema.primitiveSlots()];
+    this.referencesTemplate = new Object[toSchema.referenceSlots()];
+  }
+
+  /**
+   * Compute the permutation.
+   *
+   * @param fromSchema - Schema of the initial version.
+   * @param toSchema - Schema of the final version.
+   * @param copies - Field of the final version of each copied field, by its name in the initial version.
+   * @param defaults - Fixed value of each field of the final version that is not copied.
+   * @return The permutation.
+   * @throws VersioningConfigurationException - If a field is not declared, or a value or field can't be set to a field of another type.
+   */
+  public static SlotPermutation of(EntitySchema fromSchema, EntitySchema toSchema, Map<String, String> copies, Map<String, Object> defaults)
+      throws VersioningConfigurationException {
+    int primitiveCopies = 0;
+    for (String fromField : copies.keySet())
+      if (fromSchema.fieldIndex(fromField) >= 0 && fromSchema.fieldType(fromSchema.fieldIndex(fromField)).isPrimitive())
+        primitiveCopies++;
+
+    SlotPermutation permutation = new SlotPermutation(fromSchema, toSchema, primitiveCopies, copies.size() - primitiveCopies);
+    int primitive = 0;
+    int reference = 0;
+    for (Map.Entry<String, String> copy : copies.entrySet()) {
+      int fromField = requireField(fromSchema, copy.getKey());
+      int toField = requireField(toSchema, copy.getValue());
+      Class<?> fromType = fromSchema.fieldType(fromField);
+      Class<?> toType = toSchema.fieldType(toField);
+      if (fromType.isPrimitive() ? fromType != toType : toType.isPrimitive() || !toType.isAssignableFrom(fromType))
+        throw new VersioningConfigurationException("Field '" + copy.getKey() + "' of " + fromSchema + " can't be copied to field '"
+            + copy.getValue() + "' of " + toSchema + ". Type " + fromType.getName() + " is not assignable to " + toType.getName() + ".");
+
+      if (fromType.isPrimitive()) {
+        permutation.primitivesFrom[primitive] = fromSchema.slot(fromField);
+        permutation.primitivesTo[primitive++] = toSchema.slot(toField);
+      } else {
+        permutation.referencesFrom[reference] = fromSchema.slot(fromField);
+        permutation.referencesTo[reference++] = toSchema.slot(toField);
+      }
+    }
+
+    for (Map.Entry<String, Object> value : defaults.entrySet()) {
+      int toField = requireField(toSchema, value.getKey());
+      Class<?> toType = toSchema.fieldType(toField);
+      try {
+        if (toType.isPrimitive())
+          permutation.primitivesTemplate[toSchema.slot(toField)] = DynamicEntity.unbox(toType, value.getValue(), value.getKey());
+        else if (value.getValue() == null || toType.isInstance(value.getValue()))
+          permutation.referencesTemplate[toSchema.slot(toField)] = value.getValue();
+        else
+          throw new IllegalArgumentException();
+      } catch (IllegalArgumentException e) {
+        throw new VersioningConfigurationException("Default value " + value.getValue() + " can't be set to field '" + value.getKey() + "' of " + toSchema + ".");
+      }
+    }
+
+    return permutation;
+  }
+
+  private static int requireField(EntitySchema schema, String fieldName) throws VersioningConfigurationException {
+    int field = schema.fieldIndex(fieldName);
+    if (field < 0)
+      throw new VersioningConfigurationException("Field '" + fieldName + "' of " + schema + " is not defined.");
+    return field;
+  }
+
+  /**
+   * Create the entity of the final schema with the values of an entity of the initial schema.
+   *
+   * @param entity - Entity of the initial schema.
+   * @return New entity of the final schema.
+   * @throws IllegalArgumentException - If the entity is not of the initial schema.
+   */
+  public DynamicEntity apply(DynamicEntity entity) {
+    if (entity.schema() != fromSchema)
+      throw new IllegalArgumentException("Entity of " + entity.schema() + " can't be mapped from " + fromSchema + ".");
+
+    long[] primitives = primitivesTemplate.clone();
+    long[] fromPrimitives = entity.primitives;
+    for (int i = 0; i < primitivesFrom.length; i++)
+      primitives[primitivesTo[i]] = fromPrimitives[primitivesFrom[i]];
+
+    Object[] references = referencesTemplate.clone();
+    Object[] fromReferences = entity.references;
+    for (int i = 0; i < referencesFrom.length; i++)
+      references[referencesTo[i]] = fromReferences[referencesFrom[i]];
+
+    return new DynamicEntity(toSchema, primitives, references);
+  }
+
+  public EntitySchema fromSchema() {
+    return fromSchema;
+  }
+
+  public EntitySchema toSchema() {
+    return toSchema;
+  }
+}
@@ -0,0 +1,87 @@
+package com.versioning.index;
+
+import java.util.function.Supplier;
+
+import com.versioning.entity.Entity;
+import com.versioning.map.EntityVersionMapper;
+import com.versioning.model.ExecuteOperationVersion;
+
+/**
+ * Index of the entities, mappers and executers of an application, generated at compile time by
+ * {@code VersioningIndexProcessor}, of module {@code processor}, from the {@link com.versioning.entity.EntityVersion EntityVersion},
+ * {@link com.versioning.map.EntityVersionMap EntityVersionMap} and {@link com.versioning.model.ExecuteVersion ExecuteVersion} annotations.<br>
+ * The generated class declares the names and versions read by the processor, so the framework doesn't read
+ * the annotations at startup. It is listed in {@code META-INF/services/com.versioning.index.VersioningIndex}
+ * and registered by {@link com.versioning.VersionConfigure#registerIndexedMappers() VersionConfigure.registerIndexedMappers()}.<br>
+ * Entities are declared by class name and mappers by constructor reference, so neither is loaded before it is used.
+ *
+ * @author Haroldo Macêdo
+ *
+ */
+public interface VersioningIndex {
+
+  /**
+   * Declare all indexed entities, mappers and executers.
+   *
+   * @param registry - Receives each declaration.
+   */
+  public void register(Registry registry);
+
+  /**
+   * Receives the declarations of a {@link VersioningIndex}.
+   */
+  public interface Registry {
+
+    /**
+     * Declare the name and version of an entity class, as in its {@link com.versioning.entity.EntityVersion EntityVersion} annotation.
+     *
+     * @param entityClass - Class of the entity.
+     * @param name - Name of the entity.
+     * @param version - Version of the entity.
+     */
+    public void entity(Class<? extends Entity> entityClass, String name, int version);
+
+    /**
+     * Declare the name and version of an entity class, with no class loaded.
+     *
+     * @param entityClassName - Binary name of the entity class, as returned by {@link Class#getName()}.
+     * @param name - Name of the entity.
+     * @param version - Version of the entity.
+     */
+    public void entity(String entityClassName, String name, int version);
+
+    /**
+     * Declare a mapper, as in its {@link com.versioning.map.EntityVersionMap EntityVersionMap} annotation.
+     *
+     * @param mapper - The mapper.
+     * @param entityName - Name of the entity the mapper transforms.
+     * @param fromVersion - Initial version of the entity.
+     * @param toVersion - Final version of the entity.
+     * @param cost - Relative cost of executing the mapper.
+     */
+    public void mapper(EntityVersionMapper mapper, String entityName, int fromVersion, int toVersion, int cost);
+
+    /**
+     * Declare a mapper that is created the first time a route uses it.
+     *
+     * @param mapper - Creates the mapper, such as {@code CustomerV1ToV2::new}.
+     * @param entityName - Name of the entity the mapper transforms.
+     * @param fromVersion - Initial version of the entity.
+     * @param toVersion - Final version of the entity.
+     * @param cost - Relative cost of executing the mapper.
+     */
+    public void lazyMapper(Supplier<? extends EntityVersionMapper> mapper, String entityName, int fromVersion, int toVersion, int cost);
+
+    /**
+     * Declare the versions of an executer class, as in its {@link com.versioning.model.ExecuteVersion ExecuteVersion} annotation.
+     *
+     * @param executerClass - Class of the executer.
+     * @param inputEntity - Name of the input entity.
+     * @param inputVersion - Version of the input entity.
+     * @param outputEntity - Name of the output entity.
+     * @param outputVersion - Version of the output entity.
+     */
+    public void executer(Class<? extends ExecuteOperationVersion> executerClass, String inputEntity, int inputVersion,
+        String outputEntity, int outputVersion);
+  }
+}
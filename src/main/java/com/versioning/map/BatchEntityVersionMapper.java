@@ -0,0 +1,25 @@
+package com.versioning.map;
+
+import com.versioning.entity.Entity;
+
+/**
+ * {@link EntityVersionMapper} that can also transform many entities of the same version in a single call.<br>
+ * Used by {@link com.versioning.VersionExecuter#executeAll(java.util.List, Class) VersionExecuter.executeAll()}, 
+ * so a mapper can process all entities in a tight loop, or share work among them.
+ * 
+ * @author Haroldo Macêdo
+ *
+ */
+public interface BatchEntityVersionMapper extends EntityVersionMapper {
+
+  /**
+   * Transform all entities passed as a parameter to a new version, replacing each array element by its transformed entity.<BR>
+   * By default, calls {@link #map(Entity)} for each entity.
+   * 
+   * @param entities Entities of a version to be transformed, replaced by the transformed entities.
+   */
+  public default void mapAll(Entity[] entities) {
+    for (int i = 0; i < entities.length; i++)
+      entities[i] = map(entities[i]);
+  }
+}
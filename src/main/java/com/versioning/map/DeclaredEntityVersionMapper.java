@@ -0,0 +1,34 @@
+package com.versioning.map;
+
+/**
+ * {@link EntityVersionMapper} that declares the entity it transforms and the initial and final versions 
+ * through methods, instead of the {@link EntityVersionMap} annotation.<br>
+ * Used by mappers that are created at run time, such as the ones built by {@link FieldMapping}.
+ *
+ * @author Haroldo Macêdo
+ *
+ */
+public interface DeclaredEntityVersionMapper extends EntityVersionMapper {
+
+  /**
+   * @return Name of the entity this mapper transforms.
+   */
+  public String entityName();
+
+  /**
+   * @return Initial version of the entity.
+   */
+  public int fromVersion();
+
+  /**
+   * @return Final version of the entity.
+   */
+  public int toVersion();
+
+  /**
+   * @return Relative cost of executing this mapper. See {@link EntityVersionMap#cost()}.
+   */
+  public default int cost() {
+    return 1;
+  }
+}
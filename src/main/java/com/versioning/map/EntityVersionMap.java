@@ -19,4 +19,10 @@ public @interface EntityVersionMap {
   String entityName();
   int fromVersion();
   int toVersion();
+
+  /**
+   * Relative cost of executing this mapper, such as its average mapping time.<br>
+   * When more than one chain of mappers can transform an entity, the one with the lowest total cost is used.
+   */
+  int cost() default 1;
 }
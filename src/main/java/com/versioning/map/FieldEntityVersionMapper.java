@@ -0,0 +1,81 @@
+package com.versioning.map;
+
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import com.versioning.entity.Entity;
+
+/**
+ * Mapper built by {@link FieldMapping}.<br>
+ * Creates the entity of the final version and copies each property through the getters and setters bound
+ * by {@link FieldMapping#build()}, then sets the default values.<br>
+ * The same changes are declared as a {@link PropertyRewrite}, to map the entity in its serialized form.
+ *
+ * @author Haroldo Macêdo
+ *
+ */
+final class FieldEntityVersionMapper implements DeclaredEntityVersionMapper, StructuralEntityVersionMapper {
+
+  private final String entityName;
+  private final int fromVersion;
+  private final int toVersion;
+  private final int cost;
+  private final Supplier<Object> constructor;
+  private final Function<Object, Object>[] getters;
+  private final BiConsumer<Object, Object>[] setters;
+  private final BiConsumer<Object, Object>[] defaultSetters;
+  private final Object[] defaultValues;
+  private final PropertyRewrite propertyRewrite;
+
+  FieldEntityVersionMapper(String entityName, int fromVersion, int toVersion, int cost, Supplier<Object> constructor,
+      Function<Object, Object>[] getters, BiConsumer<Object, Object>[] setters,
+      BiConsumer<Object, Object>[] defaultSetters, Object[] defaultValues, PropertyRewrite propertyRewrite) {
+    this.entityName = entityName;
+    this.fromVersion = fromVersion;
+    this.toVersion = toVersion;
+    this.cost = cost;
+    this.constructor = constructor;
+    this.getters = getters;
+    this.setters = setters;
+    this.defaultSetters = defaultSetters;
+    this.defaultValues = defaultValues;
+    this.propertyRewrite = propertyRewrite;
+  }
+
+  @Override
+  public Entity map(Entity entity) {
+    Object entityReturn = constructor.get();
+    for (int i = 0; i < getters.length; i++)
+      setters[i].accept(entityReturn, getters[i].apply(entity));
+    for (int i = 0; i < defaultSetters.length; i++)
+      defaultSetters[i].accept(entityReturn, defaultValues[i]);
+
+    return (Entity) entityReturn;
+  }
+
+  @Override
+  public PropertyRewrite propertyRewrite() {
+    return propertyRewrite;
+  }
+
+  @Override
+  public String entityName() {
+    return entityName;
+  }
+
+  @Override
+  public int fromVersion() {
+    return fromVersion;
+  }
+
+  @Override
+  public int toVersion() {
+    return toVersion;
+  }
+
+  @Override
+  public int cost() {
+    return cost;
+  }
+}
@@ -0,0 +1,282 @@
+package com.versioning.map;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import com.versioning.VersioningConfigurationException;
+import com.versioning.entity.Entity;
+import com.versioning.entity.EntityDescriptor;
+
+/**
+ * Declares how the properties of an {@link Entity} version are copied to the next version,
+ * and builds the {@link EntityVersionMapper} that does it.<br>
+ * Every property with a getter in the initial version and a setter with the same name in the final version
+ * is copied, unless it is {@link #rename(String, String) renamed} or {@link #drop(String) dropped}.
+ * Properties with a {@link #defaultValue(String, Object) default value} are set to it and never copied.
+ * A property of a wrapper type, such as {@code Integer}, is not copied to a primitive one, such as {@code int}, since its value may be null:
+ * it must have a default value or be dropped.<br><br>
+ * The getters, setters and constructor are bound once by {@link #build()} through the {@link LambdaMetafactory},
+ * so the built mapper doesn't use reflection when mapping:
+ * <pre>
+ * VersionConfigure.registerMappers(new FieldMapping(CustomerV1.class, CustomerV2.class)
+ *     .rename("name", "fullName")
+ *     .drop("fax")
+ *     .defaultValue("country", "BR")
+ *     .build());
+ * </pre>
+ * The built mapper is also a {@link StructuralEntityVersionMapper}, so the entity can be mapped in its JSON form.
+ *
+ * @author Haroldo Macêdo
+ *
+ */
+public class FieldMapping {
+
+  private final Class<? extends Entity> fromClass;
+  private final Class<? extends Entity> toClass;
+  private final Map<String, String> renames = new LinkedHashMap<>();
+  private final Set<String> drops = new HashSet<>();
+  private final Map<String, Object> defaults = new LinkedHashMap<>();
+  private int cost = 1;
+  private MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+  /**
+   * Start the declaration of a mapping.
+   *
+   * @param fromClass - Entity class of the initial version.
+   * @param toClass - Entity class of the final version. It must have a public constructor with no parameters.
+   */
+  public FieldMapping(Class<? extends Entity> fromClass, Class<? extends Entity> toClass) {
+    this.fromClass = fromClass;
+    this.toClass = toClass;
+  }
+
+  /**
+   * Copy a property to a property with another name.
+   *
+   * @param fromProperty - Property of the initial version.
+   * @param toProperty - Property of the final version.
+   * @return This object.
+   */
+  public FieldMapping rename(String fromProperty, String toProperty) {
+    renames.put(fromProperty, toProperty);
+    return this;
+  }
+
+  /**
+   * Don't copy a property of the initial version.
+   *
+   * @param fromProperty - Property of the initial version.
+   * @return This object.
+   */
+  public FieldMapping drop(String fromProperty) {
+    drops.add(fromProperty);
+    return this;
+  }
+
+  /**
+   * Set a property of the final version to a fixed value.
+   *
+   * @param toProperty - Property of the final version.
+   * @param value - Value set in every mapped entity.
+   * @return This object.
+   */
+  public FieldMapping defaultValue(String toProperty, Object value) {
+    defaults.put(toProperty, value);
+    return this;
+  }
+
+  /**
+   * Set the cost of the built mapper. See {@link EntityVersionMap#cost()}.
+   *
+   * @param cost - Relative cost of executing the mapper.
+   * @return This object.
+   */
+  public FieldMapping cost(int cost) {
+    this.cost = cost;
+    return this;
+  }
+
+  /**
+   * Set the lookup used to bind the getters, setters and constructor.<br>
+   * Needed only when the entity classes are not visible from the class loader of this framework.
+   *
+   * @param lookup - Lookup with access to the entity classes.
+   * @return This object.
+   */
+  public FieldMapping lookup(MethodHandles.Lookup lookup) {
+    this.lookup = lookup;
+    return this;
+  }
+
+  /**
+   * Build the mapper.
+   *
+   * @return Mapper ready to be registered.
+   * @throws VersioningConfigurationException - If the entities have no annotations or different names, if a declared property doesn't exist,
+   * or if a property is copied from a wrapper type, which may be null, to a primitive type.
+   */
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  public DeclaredEntityVersionMapper build() throws VersioningConfigurationException {
+    EntityDescriptor fromEntity = EntityDescriptor.of(fromClass);
+    EntityDescriptor toEntity = EntityDescriptor.of(toClass);
+    if (fromEntity == null || toEntity == null)
+      throw new VersioningConfigurationException("Annotation for class " + (fromEntity == null ? fromClass : toClass).getName() + " is not defined.");
+    if (fromEntity.id() != toEntity.id())
+      throw new VersioningConfigurationException("Trying to map entity '" + fromEntity.name() + "' to entity '" + toEntity.name() + "'. Don't know how to map!");
+
+    Map<String, Method> getters = properties(fromClass, true);
+    Map<String, Method> setters = properties(toClass, false);
+    for (String property : renames.keySet())
+      requireProperty(getters, property, fromClass);
+    for (String property : drops)
+      requireProperty(getters, property, fromClass);
+    for (String property : defaults.keySet())
+      requireProperty(setters, property, toClass);
+
+    //  Pair each getter with the setter that receives its value.
+    Map<String, String> copies = new LinkedHashMap<>();
+    for (String property : getters.keySet()) {
+      String toProperty = renames.getOrDefault(property, property);
+      if (drops.contains(property) || defaults.containsKey(toProperty))
+        continue;
+
+      if (!setters.containsKey(toProperty)) {
+        if (renames.containsKey(property))
+          requireProperty(setters, toProperty, toClass);
+        continue;
+      }
+
+      Class<?> fromType = getters.get(property).getReturnType();
+      Class<?> toType = setters.get(toProperty).getParameterTypes()[0];
+      if (!wrap(toType).isAssignableFrom(wrap(fromType)))
+        throw new VersioningConfigurationException("Property '" + property + "' of " + fromClass.getName() + " can't be copied to property '"
+            + toProperty + "' of " + toClass.getName() + ". Type " + fromType.getName() + " is not assignable to " + toType.getName() + ".");
+      //  A null value would fail on every mapped entity, instead of once here.
+      if (toType.isPrimitive() && !fromType.isPrimitive())
+        throw new VersioningConfigurationException("Property '" + property + "' of " + fromClass.getName() + " can't be copied to property '"
+            + toProperty + "' of " + toClass.getName() + ". Type " + fromType.getName() + " may be null and " + toType.getName() 
+            + " is primitive. Declare a default value or drop the property.");
+      copies.put(property, toProperty);
+    }
+
+    for (Map.Entry<String, Object> entry : defaults.entrySet()) {
+      Class<?> toType = setters.get(entry.getKey()).getParameterTypes()[0];
+      Object value = entry.getValue();
+      if (value == null ? toType.isPrimitive() : !wrap(toType).isInstance(value))
+        throw new VersioningConfigurationException("Default value " + value + " can't be set to property '" + entry.getKey() + "' of " + toClass.getName() + ".");
+    }
+
+    //  Bind all accessors.
+    try {
+      Supplier<Object> constructor = bindConstructor(toClass);
+      Function<Object, Object>[] copyGetters = new Function[copies.size()];
+      BiConsumer<Object, Object>[] copySetters = new BiConsumer[copies.size()];
+      int i = 0;
+      for (Map.Entry<String, String> entry : copies.entrySet()) {
+        copyGetters[i] = bindGetter(getters.get(entry.getKey()));
+        copySetters[i++] = bindSetter(setters.get(entry.getValue()));
+      }
+
+      BiConsumer<Object, Object>[] defaultSetters = new BiConsumer[defaults.size()];
+      Object[] defaultValues = new Object[defaults.size()];
+      i = 0;
+      for (Map.Entry<String, Object> entry : defaults.entrySet()) {
+        defaultSetters[i] = bindSetter(setters.get(entry.getKey()));
+        defaultValues[i++] = entry.getValue();
+      }
+
+      return new FieldEntityVersionMapper(fromEntity.name(), fromEntity.version(), toEntity.version(), cost,
+          constructor, copyGetters, copySetters, defaultSetters, defaultValues, new PropertyRewrite(copies, defaults));
+    } catch (Error e) {
+      throw e;
+    } catch (Throwable e) {
+      throw new VersioningConfigurationException("Can't build mapper from " + fromClass.getName() + " to " + toClass.getName() + ": " + e);
+    }
+  }
+
+  /**
+   * Find the public getters or setters of a class.
+   *
+   * @param entityClass - Class of the entity.
+   * @param getters - true for getters, false for setters.
+   * @return Methods by property name, sorted by name.
+   */
+  private static Map<String, Method> properties(Class<?> entityClass, boolean getters) {
+    Map<String, Method> properties = new TreeMap<>();
+    for (Method method : entityClass.getMethods()) {
+      if (Modifier.isStatic(method.getModifiers()) || method.getDeclaringClass() == Object.class)
+        continue;
+
+      String name = method.getName();
+      String property = null;
+      if (getters && method.getParameterCount() == 0 && method.getReturnType() != void.class) {
+        if (name.startsWith("get") && name.length() > 3)
+          property = name.substring(3);
+        else if (name.startsWith("is") && name.length() > 2 && method.getReturnType() == boolean.class)
+          property = name.substring(2);
+      } else if (!getters && method.getParameterCount() == 1 && name.startsWith("set") && name.length() > 3) {
+        property = name.substring(3);
+      }
+
+      if (property != null)
+        properties.put(decapitalize(property), method);
+    }
+
+    return properties;
+  }
+
+  private static void requireProperty(Map<String, Method> properties, String property, Class<?> entityClass) throws VersioningConfigurationException {
+    if (!properties.containsKey(property))
+      throw new VersioningConfigurationException("Property '" + property + "' of " + entityClass.getName() + " is not defined.");
+  }
+
+  /**
+   * Same rule of java.beans.Introspector: "Name" is "name", but "URL" stays "URL".
+   */
+  private static String decapitalize(String name) {
+    if (name.length() > 1 && Character.isUpperCase(name.charAt(1)) && Character.isUpperCase(name.charAt(0)))
+      return name;
+    return Character.toLowerCase(name.charAt(0)) + name.substring(1);
+  }
+
+  private static Class<?> wrap(Class<?> type) {
+    return MethodType.methodType(type).wrap().returnType();
+  }
+
+  @SuppressWarnings("unchecked")
+  private Supplier<Object> bindConstructor(Class<?> entityClass) throws Throwable {
+    MethodHandle handle = lookup.findConstructor(entityClass, MethodType.methodType(void.class));
+    CallSite site = LambdaMetafactory.metafactory(lookup, "get", MethodType.methodType(Supplier.class),
+        MethodType.methodType(Object.class), handle, handle.type());
+    return (Supplier<Object>) site.getTarget().invokeExact();
+  }
+
+  @SuppressWarnings("unchecked")
+  private Function<Object, Object> bindGetter(Method getter) throws Throwable {
+    MethodHandle handle = lookup.unreflect(getter);
+    CallSite site = LambdaMetafactory.metafactory(lookup, "apply", MethodType.methodType(Function.class),
+        MethodType.methodType(Object.class, Object.class), handle, handle.type().wrap());
+    return (Function<Object, Object>) site.getTarget().invokeExact();
+  }
+
+  @SuppressWarnings("unchecked")
+  private BiConsumer<Object, Object> bindSetter(Method setter) throws Throwable {
+    MethodHandle handle = lookup.unreflect(setter);
+    CallSite site = LambdaMetafactory.metafactory(lookup, "accept", MethodType.methodType(BiConsumer.class),
+        MethodType.methodType(void.class, Object.class, Object.class), handle, handle.type().wrap().changeReturnType(void.class));
+    return (BiConsumer<Object, Object>) site.getTarget().invokeExact();
+  }
+}
@@ -0,0 +1,77 @@
+package com.versioning.map;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Structural change made by a mapper to the properties of an entity: which properties are copied, under which name,
+ * and which properties are set to fixed values. Properties not copied are dropped.<br>
+ * Declared by a {@link StructuralEntityVersionMapper}, so the entity can be mapped in its serialized form,
+ * such as JSON, without creating the entity objects.
+ *
+ * @author Haroldo Macêdo
+ *
+ */
+public final class PropertyRewrite {
+
+  private final Map<String, String> copies;
+  private final Map<String, Object> defaults;
+
+  /**
+   * Create the rewrite.
+   *
+   * @param copies - Name in the final version of each copied property, by its name in the initial version.
+   * @param defaults - Fixed value of each property of the final version that is not copied.
+   */
+  public PropertyRewrite(Map<String, String> copies, Map<String, Object> defaults) {
+    this.copies = Collections.unmodifiableMap(new LinkedHashMap<>(copies));
+    this.defaults = Collections.unmodifiableMap(new LinkedHashMap<>(defaults));
+  }
+
+  /**
+   * @return Name in the final version of each copied property, by its name in the initial version.
+   */
+  public Map<String, String> getCopies() {
+    return copies;
+  }
+
+  /**
+   * @return Fixed value of each property of the final version that is not copied.
+   */
+  public Map<String, Object> getDefaults() {
+    return defaults;
+  }
+
+  /**
+   * Compose this rewrite with the one of the next mapper, so a chain of mappers is applied at once.<br>
+   * A property is copied only if each mapper copies it, and a fixed value set by this rewrite is kept
+   * if the next one copies it.
+   *
+   * @param next - Rewrite applied to the result of this one.
+   * @return The rewrite with the same result as this one followed by {@code next}.
+   */
+  public PropertyRewrite then(PropertyRewrite next) {
+    Map<String, String> composedCopies = new LinkedHashMap<>();
+    for (Map.Entry<String, String> copy : copies.entrySet()) {
+      String nextProperty = next.copies.get(copy.getValue());
+      if (nextProperty != null)
+        composedCopies.put(copy.getKey(), nextProperty);
+    }
+
+    Map<String, Object> composedDefaults = new LinkedHashMap<>();
+    for (Map.Entry<String, Object> value : defaults.entrySet()) {
+      String nextProperty = next.copies.get(value.getKey());
+      if (nextProperty != null)
+        composedDefaults.put(nextProperty, value.getValue());
+    }
+    composedDefaults.putAll(next.defaults);
+
+    return new PropertyRewrite(composedCopies, composedDefaults);
+  }
+
+  @Override
+  public String toString() {
+    return "PropertyRewrite [copies=" + copies + ", defaults=" + defaults + "]";
+  }
+}
@@ -0,0 +1,57 @@
+package com.versioning.map;
+
+import com.versioning.entity.DynamicEntity;
+import com.versioning.entity.Entity;
+import com.versioning.entity.SlotPermutation;
+
+/**
+ * Mapper built by {@link SchemaMapping}.<br>
+ * Creates the {@link DynamicEntity} of the final version by applying the {@link SlotPermutation} computed 
+ * by {@link SchemaMapping#build()}.<br>
+ * The same changes are declared as a {@link PropertyRewrite}, to map the entity in its serialized form.
+ *
+ * @author Haroldo Macêdo
+ *
+ */
+final class SchemaEntityVersionMapper implements DeclaredEntityVersionMapper, StructuralEntityVersionMapper {
+
+  private final SlotPermutation permutation;
+  private final int cost;
+  private final PropertyRewrite propertyRewrite;
+
+  SchemaEntityVersionMapper(SlotPermutation permutation, int cost, PropertyRewrite propertyRewrite) {
+    this.permutation = permutation;
+    this.cost = cost;
+    this.propertyRewrite = propertyRewrite;
+  }
+
+  @Override
+  public Entity map(Entity entity) {
+    return permutation.apply((DynamicEntity) entity);
+  }
+
+  @Override
+  public PropertyRewrite propertyRewrite() {
+    return propertyRewrite;
+  }
+
+  @Override
+  public String entityName() {
+    return permutation.fromSchema().name();
+  }
+
+  @Override
+  public int fromVersion() {
+    return permutation.fromSchema().version();
+  }
+
+  @Override
+  public int toVersion() {
+    return permutation.toSchema().version();
+  }
+
+  @Override
+  public int cost() {
+    return cost;
+  }
+}
@@ -0,0 +1,135 @@
+package com.versioning.map;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import com.versioning.VersioningConfigurationException;
+import com.versioning.entity.EntitySchema;
+import com.versioning.entity.SlotPermutation;
+
+/**
+ * Declares how the fields of a {@link com.versioning.entity.DynamicEntity DynamicEntity} version are copied to the next version,
+ * and builds the {@link EntityVersionMapper} that does it. Same as {@link FieldMapping}, for entities declared by an {@link EntitySchema}.<br>
+ * Every field of the initial version with a field of the same name in the final version is copied, unless it is 
+ * {@link #rename(String, String) renamed} or {@link #drop(String) dropped}.
+ * Fields with a {@link #defaultValue(String, Object) default value} are set to it and never copied.<br><br>
+ * The slots copied are computed once by {@link #build()}, as a {@link SlotPermutation}, so the built mapper
+ * only clones an array of each kind of slot and copies the slots, with no boxing:
+ * <pre>
+ * VersionConfigure.registerMappers(new SchemaMapping(customerV1, customerV2)
+ *     .rename("name", "fullName")
+ *     .defaultValue("score", 0.5)
+ *     .build());
+ * </pre>
+ * The built mapper is also a {@link StructuralEntityVersionMapper}, so the entity can be mapped in its JSON form.
+ *
+ * @author Haroldo Macêdo
+ *
+ */
+public class SchemaMapping {
+
+  private final EntitySchema fromSchema;
+  private final EntitySchema toSchema;
+  private final Map<String, String> renames = new LinkedHashMap<>();
+  private final Set<String> drops = new HashSet<>();
+  private final Map<String, Object> defaults = new LinkedHashMap<>();
+  private int cost = 1;
+
+  /**
+   * Start the declaration of a mapping.
+   *
+   * @param fromSchema - Schema of the initial version.
+   * @param toSchema - Schema of the final version.
+   */
+  public SchemaMapping(EntitySchema fromSchema, EntitySchema toSchema) {
+    this.fromSchema = fromSchema;
+    this.toSchema = toSchema;
+  }
+
+  /**
+   * Copy a field to a field with another name.
+   *
+   * @param fromField - Field of the initial version.
+   * @param toField - Field of the final version.
+   * @return This object.
+   */
+  public SchemaMapping rename(String fromField, String toField) {
+    renames.put(fromField, toField);
+    return this;
+  }
+
+  /**
+   * Don't copy a field of the initial version.
+   *
+   * @param fromField - Field of the initial version.
+   * @return This object.
+   */
+  public SchemaMapping drop(String fromField) {
+    drops.add(fromField);
+    return this;
+  }
+
+  /**
+   * Set a field of the final version to a fixed value.
+   *
+   * @param toField - Field of the final version.
+   * @param value - Value set in every mapped entity, such as an {@code Integer} for an {@code int} field.
+   * @return This object.
+   */
+  public SchemaMapping defaultValue(String toField, Object value) {
+    defaults.put(toField, value);
+    return this;
+  }
+
+  /**
+   * Set the cost of the built mapper. See {@link EntityVersionMap#cost()}.
+   *
+   * @param cost - Relative cost of executing the mapper.
+   * @return This object.
+   */
+  public SchemaMapping cost(int cost) {
+    this.cost = cost;
+    return this;
+  }
+
+  /**
+   * Build the mapper.
+   *
+   * @return Mapper ready to be registered.
+   * @throws VersioningConfigurationException - If the schemas have different names, a declared field doesn't exist,
+   * or a field or value can't be set to a field of another type.
+   */
+  public DeclaredEntityVersionMapper build() throws VersioningConfigurationException {
+    if (!fromSchema.name().equals(toSchema.name()))
+      throw new VersioningConfigurationException("Trying to map entity '" + fromSchema.name() + "' to entity '" + toSchema.name() + "'. Don't know how to map!");
+    for (String field : renames.keySet())
+      requireField(fromSchema, field);
+    for (String field : drops)
+      requireField(fromSchema, field);
+
+    //  Pair each field with the field that receives its value.
+    Map<String, String> copies = new LinkedHashMap<>();
+    for (int i = 0; i < fromSchema.size(); i++) {
+      String field = fromSchema.fieldName(i);
+      String toField = renames.getOrDefault(field, field);
+      if (drops.contains(field) || defaults.containsKey(toField))
+        continue;
+
+      if (toSchema.fieldIndex(toField) < 0) {
+        if (renames.containsKey(field))
+          requireField(toSchema, toField);
+        continue;
+      }
+      copies.put(field, toField);
+    }
+
+    return new SchemaEntityVersionMapper(SlotPermutation.of(fromSchema, toSchema, copies, defaults), cost, new PropertyRewrite(copies, defaults));
+  }
+
+  private static void requireField(EntitySchema schema, String field) throws VersioningConfigurationException {
+    if (schema.fieldIndex(field) < 0)
+      throw new VersioningConfigurationException("Field '" + field + "' of " + schema + " is not defined.");
+  }
+}
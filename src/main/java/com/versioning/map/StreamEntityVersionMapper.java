@@ -0,0 +1,30 @@
+package com.versioning.map;
+
+import java.util.stream.Stream;
+
+import com.versioning.entity.Entity;
+
+/**
+ * {@link EntityVersionMapper} that can also transform a stream of entities.<br>
+ * Used by {@link com.versioning.VersionExecuter#executeStream(Stream, Class, Class) VersionExecuter.executeStream()}.
+ * The mapper returns a lazy stream, so entities flow through all versions one at a time and
+ * no version of the whole stream is held in memory. A mapper may also split or join entities of the stream.<br>
+ * It streams many entities, each one mapped whole. The nested entities of a single huge entity are streamed by
+ * {@link com.versioning.NestedEntityMapping#mapStream(Stream, Class) NestedEntityMapping.mapStream()}.
+ * 
+ * @author Haroldo Macêdo
+ *
+ */
+public interface StreamEntityVersionMapper extends EntityVersionMapper {
+
+  /**
+   * Transform the entities of a stream to a new version.<BR>
+   * By default, calls {@link #map(Entity)} for each entity.
+   * 
+   * @param entities Stream of entities of a version to be transformed.
+   * @return Lazy stream of the transformed entities.
+   */
+  public default Stream<Entity> mapStream(Stream<Entity> entities) {
+    return entities.map(this::map);
+  }
+}
@@ -0,0 +1,18 @@
+package com.versioning.map;
+
+/**
+ * {@link EntityVersionMapper} that only renames, drops and sets properties, declaring these changes as a {@link PropertyRewrite}.<br>
+ * Used by {@link com.versioning.JsonEntityMapping JsonEntityMapping}, which applies the rewrite directly to the JSON
+ * of the entity, with no entity objects created. Mappers built by {@link FieldMapping} are structural.<br>
+ * The rewrite must have the same result as {@link #map(com.versioning.entity.Entity) map()}.
+ *
+ * @author Haroldo Macêdo
+ *
+ */
+public interface StructuralEntityVersionMapper extends EntityVersionMapper {
+
+  /**
+   * @return The properties copied, renamed and set by this mapper.
+   */
+  public PropertyRewrite propertyRewrite();
+}
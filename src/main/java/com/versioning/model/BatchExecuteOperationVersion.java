@@ -0,0 +1,33 @@
+package com.versioning.model;
+
+import com.versioning.VersioningConfigurationException;
+import com.versioning.entity.Entity;
+
+/**
+ * {@link ExecuteOperationVersion} that can also execute the operation for many entities in a single call.<br>
+ * Used by {@link com.versioning.VersionExecuter#executeAll(java.util.List, Class) VersionExecuter.executeAll()}.
+ * The {@link ExecuteVersion} annotation is still read from the {@link #execute(Entity)} method.
+ * 
+ * @author Haroldo Macêdo
+ *
+ */
+public interface BatchExecuteOperationVersion extends ExecuteOperationVersion {
+
+  /**
+   * Execute the operation for all entities.<br>
+   * By default, calls {@link #execute(Entity)} for each entity.<br>
+   * The returned array must have one entity for each input entity. It is not copied: its entities are replaced, in place,
+   * by the entities mapped to the version expected by the caller, so it must not be kept or shared by the implementation.
+   * 
+   * @param entities - Entities in the input version of the operation.
+   * @return Entities in the output version of the operation, in the same order.
+   * @throws VersioningConfigurationException - If the operation fails. Also thrown by the caller if the returned array is null
+   *   or its length is not the number of input entities.
+   */
+  public default Entity[] executeAll(Entity[] entities) throws VersioningConfigurationException {
+    Entity[] entitiesOut = new Entity[entities.length];
+    for (int i = 0; i < entities.length; i++)
+      entitiesOut[i] = execute(entities[i]);
+    return entitiesOut;
+  }
+}
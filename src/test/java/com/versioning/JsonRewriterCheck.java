@@ -0,0 +1,51 @@
+package com.versioning;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import com.versioning.map.PropertyRewrite;
+
+/**
+ * Checks of {@link JsonRewriter}, run with its {@code main()} method. Exits with an error at the first failed check.
+ *
+ * @author Haroldo Macêdo
+ *
+ */
+public class JsonRewriterCheck {
+
+  public static void main(String[] args) throws Exception {
+    JsonRewriter rewriter = new JsonRewriter(new PropertyRewrite(Collections.singletonMap("name", "fullName"), Collections.singletonMap("vip", true)));
+
+    check(rewrite(rewriter, "{\"name\":\"Ann\",\"fax\":1}"), "{\"fullName\":\"Ann\",\"vip\":true}");
+    check(rewrite(rewriter, "{}"), "{\"vip\":true}");
+
+    //  Each repeated member grows the output, beyond the size expected for one member of each name.
+    StringBuilder json = new StringBuilder("{");
+    StringBuilder expected = new StringBuilder("{");
+    for (int i = 0; i < 50; i++) {
+      json.append(i == 0 ? "" : ",").append("\"name\":").append(i);
+      expected.append(i == 0 ? "" : ",").append("\"fullName\":").append(i);
+    }
+    check(rewrite(rewriter, json.append('}').toString()), expected.append(",\"vip\":true}").toString());
+
+    try {
+      rewrite(rewriter, "{\"name\":");
+      throw new AssertionError("Malformed JSON accepted.");
+    } catch (VersioningConfigurationException e) {
+      //  Expected.
+    }
+
+    System.out.println("JsonRewriterCheck passed.");
+  }
+
+  private static String rewrite(JsonRewriter rewriter, String json) throws VersioningConfigurationException {
+    ByteBuffer out = rewriter.rewrite(ByteBuffer.wrap(json.getBytes(StandardCharsets.UTF_8)));
+    return StandardCharsets.UTF_8.decode(out).toString();
+  }
+
+  private static void check(String actual, String expected) {
+    if (!actual.equals(expected))
+      throw new AssertionError("Expected " + expected + " but was " + actual);
+  }
+}
@@ -0,0 +1,158 @@
+package com.versioning;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.versioning.entity.Entity;
+import com.versioning.entity.EntityVersion;
+import com.versioning.map.EntityVersionMap;
+import com.versioning.map.EntityVersionMapper;
+import com.versioning.model.ExecuteOperationVersion;
+import com.versioning.model.ExecuteVersion;
+
+/**
+ * Checks that the nested lists of an entity copied as they are by its mapper are mapped by the framework
+ * to the version of each list, run with its {@code main()} method. Exits with an error at the first failed check.
+ *
+ * @author Haroldo Macêdo
+ *
+ */
+public class NestedListCheck {
+
+  private static final int ITEMS = 3000;
+
+  @EntityVersion(name = "nested.item", version = 1)
+  public static class ItemV1 implements Entity {
+    public int number;
+  }
+
+  @EntityVersion(name = "nested.item", version = 2)
+  public static class ItemV2 implements Entity {
+    public int number;
+  }
+
+  @EntityVersion(name = "nested.order", version = 1)
+  public static class OrderV1 implements Entity {
+    public List<ItemV1> items;
+    private List<ItemV1> gifts;
+
+    public List<ItemV1> getGifts() {
+      return gifts;
+    }
+
+    public void setGifts(List<ItemV1> gifts) {
+      this.gifts = gifts;
+    }
+  }
+
+  @EntityVersion(name = "nested.order", version = 2)
+  public static class OrderV2 implements Entity {
+    public List<ItemV2> items;
+    private List<ItemV2> gifts;
+
+    public List<ItemV2> getGifts() {
+      return gifts;
+    }
+
+    public void setGifts(List<ItemV2> gifts) {
+      this.gifts = gifts;
+    }
+  }
+
+  public static class ItemV1ToV2 implements EntityVersionMapper {
+    @Override
+    @EntityVersionMap(entityName = "nested.item", fromVersion = 1, toVersion = 2)
+    public Entity map(Entity entity) {
+      ItemV2 item = new ItemV2();
+      item.number = ((ItemV1) entity).number;
+      return item;
+    }
+  }
+
+  public static class ItemV2ToV1 implements EntityVersionMapper {
+    @Override
+    @EntityVersionMap(entityName = "nested.item", fromVersion = 2, toVersion = 1)
+    public Entity map(Entity entity) {
+      ItemV1 item = new ItemV1();
+      item.number = ((ItemV2) entity).number;
+      return item;
+    }
+  }
+
+  /**
+   * Copies the lists as they are, leaving their mapping to the framework.
+   */
+  public static class OrderV1ToV2 implements EntityVersionMapper {
+    @Override
+    @EntityVersionMap(entityName = "nested.order", fromVersion = 1, toVersion = 2)
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public Entity map(Entity entity) {
+      OrderV1 from = (OrderV1) entity;
+      OrderV2 order = new OrderV2();
+      order.items = (List) from.items;
+      order.setGifts((List) from.getGifts());
+      return order;
+    }
+  }
+
+  public static class OrderV2ToV1 implements EntityVersionMapper {
+    @Override
+    @EntityVersionMap(entityName = "nested.order", fromVersion = 2, toVersion = 1)
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public Entity map(Entity entity) {
+      OrderV2 from = (OrderV2) entity;
+      OrderV1 order = new OrderV1();
+      order.items = (List) from.items;
+      order.setGifts((List) from.getGifts());
+      return order;
+    }
+  }
+
+  public static class SaveOrder implements ExecuteOperationVersion {
+    @Override
+    @ExecuteVersion(inputEntity = "nested.order", inputVersion = 2, outputEntity = "nested.order", outputVersion = 2)
+    public Entity execute(Entity entity) {
+      OrderV2 order = (OrderV2) entity;
+      checkItems(order.items, ItemV2.class, ITEMS);
+      checkItems(order.getGifts(), ItemV2.class, 1);
+      return order;
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    VersioningContext context = VersionConfigure.newContext(new ItemV1ToV2(), new ItemV2ToV1(), new OrderV1ToV2(), new OrderV2ToV1());
+    VersionExecuter executer = context.get(new SaveOrder());
+
+    OrderV1 order = new OrderV1();
+    order.items = new ArrayList<>();
+    for (int i = 0; i < ITEMS; i++)
+      order.items.add(item(i));
+    order.setGifts(new ArrayList<>());
+    order.getGifts().add(item(0));
+
+    OrderV1 saved = (OrderV1) executer.execute(order, OrderV1.class);
+    checkItems(saved.items, ItemV1.class, ITEMS);
+    checkItems(saved.getGifts(), ItemV1.class, 1);
+
+    System.out.println("NestedListCheck passed.");
+  }
+
+  private static ItemV1 item(int number) {
+    ItemV1 item = new ItemV1();
+    item.number = number;
+    return item;
+  }
+
+  private static void checkItems(List<? extends Entity> items, Class<?> itemClass, int size) {
+    if (items.size() != size)
+      throw new AssertionError("Expected " + size + " items, found " + items.size());
+    for (int i = 0; i < size; i++) {
+      Object item = items.get(i);
+      if (item.getClass() != itemClass)
+        throw new AssertionError("Item " + i + " is " + item.getClass().getName() + " instead of " + itemClass.getName());
+      int number = (item instanceof ItemV1 ? ((ItemV1) item).number : ((ItemV2) item).number);
+      if (number != i)
+        throw new AssertionError("Item " + i + " has number " + number);
+    }
+  }
+}
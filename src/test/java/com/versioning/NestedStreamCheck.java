@@ -0,0 +1,125 @@
+package com.versioning;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import com.versioning.entity.Entity;
+import com.versioning.entity.EntityVersion;
+import com.versioning.map.EntityVersionMap;
+import com.versioning.map.EntityVersionMapper;
+
+/**
+ * Checks that the nested entities of a single entity, kept as a stream, are mapped through all versions only when
+ * the mapped entity is read, run with its {@code main()} method. Exits with an error at the first failed check.
+ *
+ * @author Haroldo Macêdo
+ *
+ */
+public class NestedStreamCheck {
+
+  private static final int ROWS = 1_000_000;
+
+  public abstract static class Report implements Entity {
+    public Stream<? extends Entity> rows;
+  }
+
+  @EntityVersion(name = "nested.report", version = 1)
+  public static class ReportV1 extends Report {
+  }
+
+  @EntityVersion(name = "nested.report", version = 2)
+  public static class ReportV2 extends Report {
+  }
+
+  @EntityVersion(name = "nested.report", version = 3)
+  public static class ReportV3 extends Report {
+  }
+
+  public abstract static class Row implements Entity {
+    public int number;
+  }
+
+  @EntityVersion(name = "nested.row", version = 1)
+  public static class RowV1 extends Row {
+  }
+
+  @EntityVersion(name = "nested.row", version = 2)
+  public static class RowV2 extends Row {
+  }
+
+  @EntityVersion(name = "nested.row", version = 3)
+  public static class RowV3 extends Row {
+  }
+
+  public static class ReportV1ToV2 implements EntityVersionMapper {
+    @Override
+    @EntityVersionMap(entityName = "nested.report", fromVersion = 1, toVersion = 2)
+    public Entity map(Entity entity) {
+      ReportV2 report = new ReportV2();
+      report.rows = NestedEntityMapping.mapStream(((Report) entity).rows, RowV2.class, context);
+      return report;
+    }
+  }
+
+  public static class ReportV2ToV3 implements EntityVersionMapper {
+    @Override
+    @EntityVersionMap(entityName = "nested.report", fromVersion = 2, toVersion = 3)
+    public Entity map(Entity entity) {
+      ReportV3 report = new ReportV3();
+      report.rows = NestedEntityMapping.mapStream(((Report) entity).rows, RowV3.class, context);
+      return report;
+    }
+  }
+
+  public static class RowV1ToV2 implements EntityVersionMapper {
+    @Override
+    @EntityVersionMap(entityName = "nested.row", fromVersion = 1, toVersion = 2)
+    public Entity map(Entity entity) {
+      return copy((Row) entity, new RowV2());
+    }
+  }
+
+  public static class RowV2ToV3 implements EntityVersionMapper {
+    @Override
+    @EntityVersionMap(entityName = "nested.row", fromVersion = 2, toVersion = 3)
+    public Entity map(Entity entity) {
+      return copy((Row) entity, new RowV3());
+    }
+  }
+
+  private static VersioningContext context;
+
+  public static void main(String[] args) throws Exception {
+    context = VersionConfigure.newContext(new ReportV1ToV2(), new ReportV2ToV3(), new RowV1ToV2(), new RowV2ToV3());
+    MapEntityVersion mappings = context.mappings();
+
+    AtomicInteger read = new AtomicInteger();
+    ReportV1 report = new ReportV1();
+    report.rows = IntStream.range(0, ROWS).mapToObj(number -> {
+      read.incrementAndGet();
+      RowV1 row = new RowV1();
+      row.number = number;
+      return row;
+    });
+
+    Report mapped = (Report) MapEntityVersion.map(report, mappings.getMapperChain("nested.report", 1, 3));
+    if (read.get() != 0)
+      throw new AssertionError(read.get() + " rows read by the mapping of the report.");
+
+    AtomicInteger next = new AtomicInteger();
+    mapped.rows.forEach(row -> {
+      if (!(row instanceof RowV3) || ((Row) row).number != next.getAndIncrement())
+        throw new AssertionError("Row " + next.get() + " mapped to " + row.getClass().getName());
+    });
+    if (next.get() != ROWS || read.get() != ROWS)
+      throw new AssertionError("Expected " + ROWS + " rows, found " + next.get());
+
+    System.out.println("NestedStreamCheck passed.");
+  }
+
+  private static Row copy(Row from, Row to) {
+    to.number = from.number;
+    return to;
+  }
+}
@@ -0,0 +1,132 @@
+package com.versioning;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.versioning.entity.Entity;
+
+/**
+ * Stress check of mappers registered while other threads map entities, run with its {@code main()} method.
+ * Exits with an error at the first torn read.<br>
+ * One writer adds the mappers of a chain of versions one by one, so every route found must map the entity to the
+ * requested version, and a route found once must be found again. Another writer registers the mappers of two entities
+ * in a single call, so a reader that sees one of them must see the other one.
+ *
+ * @author Haroldo Macêdo
+ *
+ */
+public class RegistryStressCheck {
+
+  private static final String CHAIN = "stress.chain";
+  private static final int CHAIN_VERSIONS = 400;
+  private static final int PAIRS = 2000;
+  private static final int READERS = 4;
+
+  public static void main(String[] args) throws Exception {
+    AtomicBoolean writing = new AtomicBoolean(true);
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+    LongAdder reads = new LongAdder();
+
+    Thread[] threads = new Thread[READERS + 2];
+    threads[0] = new Thread(() -> {
+      for (int version = 1; version < CHAIN_VERSIONS; version++)
+        MapEntityVersion.registerMappers(Arrays.asList(step(CHAIN, version)));
+    });
+    threads[1] = new Thread(() -> {
+      for (int pair = 0; pair < PAIRS; pair++)
+        MapEntityVersion.registerMappers(Arrays.asList(step(pairName(pair, 'a'), 1), step(pairName(pair, 'b'), 1)));
+    });
+    for (int i = 0; i < READERS; i++)
+      threads[i + 2] = new Thread(() -> read(writing, reads));
+
+    for (Thread thread : threads) {
+      thread.setUncaughtExceptionHandler((t, e) -> failure.compareAndSet(null, e));
+      thread.start();
+    }
+    threads[0].join();
+    threads[1].join();
+    writing.set(false);
+    for (int i = 2; i < threads.length; i++)
+      threads[i].join();
+
+    if (failure.get() != null)
+      throw new AssertionError("Torn read after " + reads.sum() + " reads.", failure.get());
+
+    //  After the writers end, every route is found.
+    MapEntityVersion mappings = MapEntityVersion.global();
+    check(((Step) MapEntityVersion.map(new Step(1), mappings.getMapperChain(CHAIN, 1, CHAIN_VERSIONS))).version, CHAIN_VERSIONS);
+    Map<String, VersionPath> entities = mappings.getEntities();
+    check(entities.size(), 2 * PAIRS + 1);
+
+    System.out.println("RegistryStressCheck passed after " + reads.sum() + " reads.");
+  }
+
+  /**
+   * Map entities until the writers end, checking each snapshot of the mappers.
+   */
+  private static void read(AtomicBoolean writing, LongAdder reads) {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    int mappedUpTo = 1;
+    int pairsSeen = 0;
+    do {
+      MapEntityVersion mappings = MapEntityVersion.global();
+
+      int toVersion = 2 + random.nextInt(CHAIN_VERSIONS - 1);
+      MapperChain mapperChain;
+      try {
+        mapperChain = mappings.getMapperChain(CHAIN, 1, toVersion);
+      } catch (UnmappableRouteException e) {
+        mapperChain = null;
+      }
+      if (mapperChain != null)
+        check(((Step) MapEntityVersion.map(new Step(1), mapperChain)).version, toVersion);
+      if (toVersion <= mappedUpTo && mapperChain == null)
+        throw new AssertionError("Route to version " + toVersion + " found before, but not found now.");
+      if (mapperChain != null)
+        mappedUpTo = Math.max(mappedUpTo, toVersion);
+
+      //  Pairs are registered in order, so all pairs before a registered one are registered.
+      Map<String, VersionPath> entities = mappings.getEntities();
+      int pair = random.nextInt(PAIRS);
+      boolean registered = entities.containsKey(pairName(pair, 'a'));
+      if (registered != entities.containsKey(pairName(pair, 'b')))
+        throw new AssertionError("Only one entity of pair " + pair + " registered.");
+      if (registered && pair > 0 && !entities.containsKey(pairName(pair - 1, 'b')))
+        throw new AssertionError("Pair " + pair + " registered, but pair " + (pair - 1) + " is not.");
+      if (!registered && pair < pairsSeen)
+        throw new AssertionError("Pair " + pair + " found before, but not found now.");
+      if (registered)
+        pairsSeen = Math.max(pairsSeen, pair + 1);
+
+      reads.increment();
+    } while (writing.get());
+  }
+
+  private static MapperRegistration step(String entityName, int fromVersion) {
+    return new MapperRegistration(entityName, fromVersion, fromVersion + 1, 1, (Entity entity) -> {
+      check(((Step) entity).version, fromVersion);
+      return new Step(fromVersion + 1);
+    });
+  }
+
+  private static String pairName(int pair, char side) {
+    return "stress.pair" + pair + side;
+  }
+
+  private static void check(int actual, int expected) {
+    if (actual != expected)
+      throw new AssertionError("Expected " + expected + ", found " + actual);
+  }
+
+  private static class Step implements Entity {
+    private final int version;
+
+    private Step(int version) {
+      this.version = version;
+    }
+  }
+}
@@ -0,0 +1,109 @@
+package com.versioning;
+
+import com.versioning.entity.Entity;
+import com.versioning.entity.EntityVersion;
+import com.versioning.map.EntityVersionMap;
+import com.versioning.map.EntityVersionMapper;
+import com.versioning.model.ExecuteOperationVersion;
+import com.versioning.model.ExecuteVersion;
+
+/**
+ * Checks that rejected requests throw the same stackless {@link UnmappableRouteException} on every call,
+ * run with its {@code main()} method. Exits with an error at the first failed check.
+ *
+ * @author Haroldo Macêdo
+ *
+ */
+public class RejectionCheck {
+
+  @EntityVersion(name = "order", version = 1)
+  public static class OrderV1 implements Entity {
+  }
+
+  @EntityVersion(name = "order", version = 2)
+  public static class OrderV2 implements Entity {
+  }
+
+  @EntityVersion(name = "order", version = 3)
+  public static class OrderV3 implements Entity {
+  }
+
+  @EntityVersion(name = "invoice", version = 1)
+  public static class InvoiceV1 implements Entity {
+  }
+
+  public static class Unannotated implements Entity {
+  }
+
+  public static class OrderV1ToV2 implements EntityVersionMapper {
+    @Override
+    @EntityVersionMap(entityName = "order", fromVersion = 1, toVersion = 2)
+    public Entity map(Entity entity) {
+      return new OrderV2();
+    }
+  }
+
+  public static class OrderV2ToV1 implements EntityVersionMapper {
+    @Override
+    @EntityVersionMap(entityName = "order", fromVersion = 2, toVersion = 1)
+    public Entity map(Entity entity) {
+      return new OrderV1();
+    }
+  }
+
+  public static class SaveOrder implements ExecuteOperationVersion {
+    @Override
+    @ExecuteVersion(inputEntity = "order", inputVersion = 2, outputEntity = "order", outputVersion = 2)
+    public Entity execute(Entity entity) {
+      return entity;
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    VersioningContext context = VersionConfigure.newContext(new OrderV1ToV2(), new OrderV2ToV1());
+    VersionExecuter executer = context.get(new SaveOrder());
+    VersionExecuter dispatcher = context.getDispatcher(new SaveOrder());
+
+    checkCached(executer, new OrderV1(), OrderV1.class, null);
+    checkCached(executer, new InvoiceV1(), OrderV1.class, "Request of another entity");
+    checkCached(executer, new OrderV1(), InvoiceV1.class, "Response of another entity");
+    checkCached(executer, new Unannotated(), OrderV1.class, "Class with no annotation");
+    checkCached(executer, new OrderV3(), OrderV1.class, "Request to a previous version");
+    checkCached(executer, new OrderV1(), OrderV3.class, "Response to a next version");
+    checkCached(dispatcher, new OrderV3(), OrderV1.class, "No executer of the dispatcher");
+    checkCached(dispatcher, new Unannotated(), OrderV1.class, "Class with no annotation in the dispatcher");
+
+    System.out.println("RejectionCheck passed.");
+  }
+
+  /**
+   * Execute a request twice and check that both calls throw the same stackless exception, or that none throws.
+   */
+  private static void checkCached(VersionExecuter executer, Entity request, Class<? extends Entity> responseClass, String rejection) {
+    UnmappableRouteException first = execute(executer, request, responseClass);
+    UnmappableRouteException second = execute(executer, request, responseClass);
+    if (rejection == null) {
+      if (first != null)
+        throw new AssertionError("Request rejected: " + first.getMessage());
+      return;
+    }
+
+    if (first == null)
+      throw new AssertionError(rejection + " not rejected.");
+    if (first != second)
+      throw new AssertionError(rejection + " throws a new exception on each request.");
+    if (first.getStackTrace().length != 0)
+      throw new AssertionError(rejection + " has a stack trace.");
+  }
+
+  private static UnmappableRouteException execute(VersionExecuter executer, Entity request, Class<? extends Entity> responseClass) {
+    try {
+      executer.execute(request, responseClass);
+      return null;
+    } catch (UnmappableRouteException e) {
+      return e;
+    } catch (VersioningConfigurationException e) {
+      throw new AssertionError("Rejected with " + e.getClass().getName() + ": " + e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,119 @@
+package com.versioning;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.CRC32;
+
+import com.versioning.entity.Entity;
+import com.versioning.entity.EntityVersion;
+import com.versioning.map.EntityVersionMap;
+import com.versioning.map.EntityVersionMapper;
+
+/**
+ * Checks that a {@link RouteSnapshot} is read with no creation of the mappers and is not used once a mapper class changed,
+ * run with its {@code main()} method. Exits with an error at the first failed check.
+ *
+ * @author Haroldo Macêdo
+ *
+ */
+public class SnapshotCheck {
+
+  @EntityVersion(name = "snapshot.item", version = 1)
+  public static class ItemV1 implements Entity {
+  }
+
+  @EntityVersion(name = "snapshot.item", version = 2)
+  public static class ItemV2 implements Entity {
+  }
+
+  @EntityVersion(name = "snapshot.item", version = 3)
+  public static class ItemV3 implements Entity {
+  }
+
+  public static class ItemV1ToV2 implements EntityVersionMapper {
+    @Override
+    @EntityVersionMap(entityName = "snapshot.item", fromVersion = 1, toVersion = 2)
+    public Entity map(Entity entity) {
+      return new ItemV2();
+    }
+  }
+
+  public static class ItemV2ToV3 implements EntityVersionMapper {
+    @Override
+    @EntityVersionMap(entityName = "snapshot.item", fromVersion = 2, toVersion = 3)
+    public Entity map(Entity entity) {
+      return new ItemV3();
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  public static void main(String[] args) throws Exception {
+    VersionConfigure.registerMapperClasses(ItemV2ToV3.class, ItemV1ToV2.class);
+    MapEntityVersion.global().getMapperChain("snapshot.item", 1, 3);
+
+    Path file = Files.createTempFile("snapshot", ".bin");
+    try {
+      VersionConfigure.saveSnapshot(file);
+      if (!VersionConfigure.loadSnapshot(file))
+        throw new AssertionError("Snapshot not loaded.");
+
+      //  Mappers are only created when the route is used.
+      VersionPath versionPath = MapEntityVersion.global().getEntities().get("snapshot.item");
+      for (MapperRegistration registration : versionPath.getRegistrations()) {
+        if (registration.snapshotClassName() == null || registration.isCreated())
+          throw new AssertionError("Mapper " + registration.snapshotClassName() + " created by the snapshot.");
+      }
+      check(versionPath.getVersions().length, 3);
+      Entity item = MapEntityVersion.map(new ItemV1(), MapEntityVersion.global().getMapperChain("snapshot.item", 1, 3));
+      if (!(item instanceof ItemV3))
+        throw new AssertionError("Snapshot route mapped to " + item.getClass().getName());
+
+      //  A snapshot written from a snapshot is the same file.
+      Path copy = Files.createTempFile("snapshot", ".bin");
+      try {
+        VersionConfigure.saveSnapshot(copy);
+        if (!ByteBuffer.wrap(Files.readAllBytes(file)).equals(ByteBuffer.wrap(Files.readAllBytes(copy))))
+          throw new AssertionError("Snapshot written from a snapshot changed.");
+      } finally {
+        Files.delete(copy);
+      }
+
+      //  A changed class file invalidates the snapshot.
+      changeClassCrc(file, ItemV1ToV2.class.getName());
+      if (VersionConfigure.loadSnapshot(file))
+        throw new AssertionError("Snapshot loaded with a changed mapper class.");
+    } finally {
+      Files.delete(file);
+    }
+
+    System.out.println("SnapshotCheck passed.");
+  }
+
+  /**
+   * Change the class file CRC32 stored for a class, and fix the CRC32 of the body, as if the class had been recompiled.
+   */
+  private static void changeClassCrc(Path file, String className) throws Exception {
+    ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+    int classCount = buffer.getInt(16);
+    buffer.position(20);
+    for (int i = 0; i < classCount; i++) {
+      byte[] name = new byte[buffer.getShort() & 0xFFFF];
+      buffer.get(name);
+      if (new String(name, StandardCharsets.UTF_8).equals(className))
+        buffer.putInt(buffer.position(), buffer.getInt(buffer.position()) + 1);
+      buffer.getInt();
+    }
+
+    CRC32 crc = new CRC32();
+    crc.update(buffer.array(), 16, buffer.capacity() - 16);
+    buffer.putInt(12, (int) crc.getValue());
+    Files.write(file, buffer.array());
+  }
+
+  private static void check(int actual, int expected) {
+    if (actual != expected)
+      throw new AssertionError("Expected " + expected + ", found " + actual);
+  }
+}
@@ -0,0 +1,99 @@
+package com.versioning;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import com.versioning.entity.Entity;
+import com.versioning.entity.EntityVersion;
+import com.versioning.map.EntityVersionMap;
+import com.versioning.map.EntityVersionMapper;
+import com.versioning.map.StreamEntityVersionMapper;
+import com.versioning.model.ExecuteOperationVersion;
+import com.versioning.model.ExecuteVersion;
+
+/**
+ * Checks that the entities of {@link VersionExecuter#executeStream(Stream, Class, Class) executeStream()} are reported
+ * to the {@link VersioningListener}, run with its {@code main()} method. Exits with an error at the first failed check.
+ *
+ * @author Haroldo Macêdo
+ *
+ */
+public class StreamListenerCheck {
+
+  private static final int EVENTS = 100;
+
+  @EntityVersion(name = "listener.event", version = 1)
+  public static class EventV1 implements Entity {
+  }
+
+  @EntityVersion(name = "listener.event", version = 2)
+  public static class EventV2 implements Entity {
+  }
+
+  public static class EventV1ToV2 implements EntityVersionMapper {
+    @Override
+    @EntityVersionMap(entityName = "listener.event", fromVersion = 1, toVersion = 2)
+    public Entity map(Entity entity) {
+      return new EventV2();
+    }
+  }
+
+  /**
+   * Splits each event in two, so the response has twice the entities of the request.
+   */
+  public static class EventV2ToV1 implements StreamEntityVersionMapper {
+    @Override
+    @EntityVersionMap(entityName = "listener.event", fromVersion = 2, toVersion = 1)
+    public Entity map(Entity entity) {
+      return new EventV1();
+    }
+
+    @Override
+    public Stream<Entity> mapStream(Stream<Entity> entities) {
+      return entities.flatMap(entity -> Stream.of(map(entity), map(entity)));
+    }
+  }
+
+  public static class SaveEvent implements ExecuteOperationVersion {
+    @Override
+    @ExecuteVersion(inputEntity = "listener.event", inputVersion = 2, outputEntity = "listener.event", outputVersion = 2)
+    public Entity execute(Entity entity) {
+      return entity;
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    AtomicInteger requests = new AtomicInteger();
+    AtomicInteger responses = new AtomicInteger();
+    VersionConfigure.setListener(new VersioningListener() {
+      @Override
+      public void mapped(MappingRoute route, long nanos) {
+        (route.getFromVersion() < route.getToVersion() ? requests : responses).incrementAndGet();
+      }
+    });
+
+    try {
+      VersioningContext context = VersionConfigure.newContext(new EventV1ToV2(), new EventV2ToV1());
+      VersionExecuter executer = context.get(new SaveEvent());
+      Stream<Entity> responseStream = executer.executeStream(IntStream.range(0, EVENTS).mapToObj(i -> new EventV1()), EventV1.class, EventV1.class);
+      if (requests.get() != 0 || responses.get() != 0)
+        throw new AssertionError("Entities reported before the stream is read.");
+
+      int count = responseStream.collect(Collectors.toList()).size();
+      check(count, 2 * EVENTS);
+      check(requests.get(), EVENTS);
+      check(responses.get(), 2 * EVENTS);
+    } finally {
+      VersionConfigure.setListener(null);
+    }
+
+    System.out.println("StreamListenerCheck passed.");
+  }
+
+  private static void check(int actual, int expected) {
+    if (actual != expected)
+      throw new AssertionError("Expected " + expected + ", found " + actual);
+  }
+}